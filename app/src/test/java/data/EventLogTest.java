@@ -0,0 +1,122 @@
+package data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import model.Clue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<String> questions(List<InvestigationEvent> events) {
+        List<String> questions = new ArrayList<>();
+        for (InvestigationEvent event : events) {
+            if (event.getType() == InvestigationEvent.Type.QUESTION_ASKED) {
+                questions.add(event.getField(2));
+            }
+        }
+        return questions;
+    }
+
+    @Test
+    void replaysEachSessionInOrder() throws IOException {
+        long first;
+        long second;
+        try (EventLog log = new EventLog(dir.toString())) {
+            first = log.startSession("The Missing Ticket");
+            second = log.startSession("The Missing Ticket");
+            Clue clue = new Clue("A torn ticket", "", "Sipho");
+            assertTrue(log.clueDiscovered(first, clue));
+            assertFalse(log.clueDiscovered(first, clue));
+            assertTrue(log.clueDiscovered(second, clue));
+            log.questionAsked(first, "Sipho", "Start", "Where were you?");
+            log.questionAsked(second, "Nomsa", "Start", "Who saw you?");
+            log.accusationMade(first, "Sipho", true);
+            assertEquals(1, log.getSuppressedDuplicates());
+        }
+
+        EventLogReader reader = EventLogReader.open(dir.toString());
+        assertEquals(7, reader.getEventCount());
+        List<InvestigationEvent> events = reader.readSession(first);
+        assertEquals(4, events.size());
+        assertEquals(InvestigationEvent.Type.CASE_STARTED, events.get(0).getType());
+        assertEquals("The Missing Ticket", events.get(0).getField(0));
+        assertEquals(InvestigationEvent.Type.CLUE_DISCOVERED, events.get(1).getType());
+        assertEquals(List.of("Sipho", "Start", "Where were you?"), events.get(2).getFields());
+        assertEquals(List.of("Sipho", "correct"), events.get(3).getFields());
+        assertEquals(List.of("Who saw you?"), questions(reader.readSession(second)));
+    }
+
+    @Test
+    void rotatesSegmentsAndDropsTheOldest() throws IOException {
+        long session;
+        try (EventLog log = new EventLog(dir.toString(), 256, 3)) {
+            session = log.startSession("case");
+            for (int i = 0; i < 100; i++) {
+                log.questionAsked(session, "Sipho", "Start", "Question " + i);
+            }
+            assertEquals(3, log.getSegmentCount());
+        }
+
+        EventLogReader reader = EventLogReader.open(dir.toString());
+        List<String> kept = questions(reader.readSession(session));
+        assertFalse(kept.isEmpty());
+        assertEquals("Question 99", kept.get(kept.size() - 1));
+        int first = Integer.parseInt(kept.get(0).substring("Question ".length()));
+        for (int i = 0; i < kept.size(); i++) {
+            assertEquals("Question " + (first + i), kept.get(i));
+        }
+        List<InvestigationEvent> all = new ArrayList<>();
+        reader.replayRange(0, Long.MAX_VALUE, all::add);
+        assertEquals(reader.getEventCount(), all.size());
+    }
+
+    @Test
+    void recoversATornLastSegment() throws IOException {
+        long session;
+        try (EventLog log = new EventLog(dir.toString(), 256, 8)) {
+            session = log.startSession("case");
+            for (int i = 0; i < 20; i++) {
+                log.questionAsked(session, "Sipho", "Start", "Question " + i);
+            }
+        }
+        List<Integer> segments = EventLog.listSegments(dir);
+        int last = segments.get(segments.size() - 1);
+        List<String> before = questions(EventLogReader.open(dir.toString()).readSession(session));
+        assertEquals("Question 19", before.get(before.size() - 1));
+
+        // Stop as if the process died partway through the last record, before its index entry.
+        Path segment = EventLog.segmentFile(dir, last);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        Path index = EventLog.indexFile(dir, last);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(EventLog.INDEX_HEADER_SIZE);
+        }
+
+        try (EventLog log = new EventLog(dir.toString(), 256, 8)) {
+            assertEquals(segments.size(), log.getSegmentCount());
+            log.questionAsked(session, "Sipho", "Start", "After the crash");
+        }
+
+        List<String> after = questions(EventLogReader.open(dir.toString()).readSession(session));
+        List<String> expected = new ArrayList<>(before.subList(0, before.size() - 1));
+        expected.add("After the crash");
+        assertEquals(expected, after);
+        assertEquals(EventLog.listSegments(dir), segments);
+        assertTrue(Files.size(segment) > 0);
+    }
+}
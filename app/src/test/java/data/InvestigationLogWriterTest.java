@@ -0,0 +1,89 @@
+package data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InvestigationLogWriterTest {
+    private static final int THREADS = 4;
+    private static final int APPENDS = 200;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesEveryQueuedEntry() throws IOException {
+        Path file = dir.resolve("investigation.log");
+        try (InvestigationLogWriter writer = new InvestigationLogWriter(file.toString())) {
+            for (int i = 0; i < 1000; i++) {
+                writer.append("Entry " + i);
+            }
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1000, lines.size());
+        assertEquals("Entry 0", lines.get(0));
+        assertEquals("Entry 999", lines.get(999));
+    }
+
+    @Test
+    void rejectsEntriesAfterClose() throws IOException {
+        Path file = dir.resolve("investigation.log");
+        InvestigationLogWriter writer = new InvestigationLogWriter(file.toString());
+        writer.close();
+        writer.append("Too late");
+        assertFalse(writer.tryAppend("Too late", 10, TimeUnit.MILLISECONDS));
+
+        assertEquals(2, writer.getRejectedEntries());
+        assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).isEmpty());
+    }
+
+    @Test
+    void closingWhileAppendingLosesNoEntry() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Path file = dir.resolve("race-" + round + ".log");
+            InvestigationLogWriter writer =
+                    new InvestigationLogWriter(file.toString(), 4, InvestigationLogWriter.FlushPolicy.TIMED, 1000);
+            CountDownLatch started = new CountDownLatch(THREADS);
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                threads[t] = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < APPENDS; i++) {
+                        if (i % 2 == 0) {
+                            writer.append(thread + ":" + i);
+                        } else {
+                            writer.tryAppend(thread + ":" + i, 1, TimeUnit.SECONDS);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            started.await();
+            writer.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // Every entry is either in the file or counted as rejected, never dropped silently.
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            Set<String> distinct = new HashSet<>(lines);
+            assertEquals(lines.size(), distinct.size());
+            assertEquals(writer.getEntriesWritten(), lines.size());
+            assertEquals(THREADS * APPENDS, lines.size() + writer.getRejectedEntries(), "round " + round);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import model.CaseDifficulty;
+import model.Clue;
+import model.Suspect;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CaseBundleTest {
+
+    @TempDir
+    Path dir;
+
+    private static CaseSnapshot testCase() {
+        List<Clue> clues = new ArrayList<>();
+        clues.add(new Clue("A torn ticket under the table", "Check the date", "Sipho"));
+        clues.add(new Clue("Muddy footprints by the gate", "", "Nomsa"));
+        clues.add(new Clue("A note signed with a single letter", "", ""));
+        Map<String, Suspect> suspects = new LinkedHashMap<>();
+        Map<String, Map<String, String>> dialogue = new LinkedHashMap<>();
+        Map<String, String> start = new LinkedHashMap<>();
+        start.put("Where were you last seen?", "At the taxi rank.");
+        dialogue.put("Start", start);
+        suspects.put("Sipho", new Suspect("Sipho", dialogue));
+        suspects.put("Nomsa", new Suspect("Nomsa", new LinkedHashMap<>()));
+        List<String> rules = List.of(
+                "clue:2 <- asked:Sipho/Where were you last seen?",
+                "clue:3 <- clue:1 & difficulty:EASY");
+        return new CaseSnapshot("The Missing Ticket\nSomeone took it.\n", clues, suspects, "Sipho",
+                "Sipho kept the ticket.", rules);
+    }
+
+    @Test
+    void roundTripsACase() throws IOException {
+        CaseSnapshot snapshot = testCase();
+        Path file = dir.resolve("case.bundle");
+        CaseBundleCompiler.compile(snapshot, "The Missing Ticket", CaseDifficulty.HARD, file);
+
+        CaseBundle bundle = CaseBundle.open(file);
+        assertEquals("The Missing Ticket", bundle.getTitle());
+        assertEquals(CaseDifficulty.HARD, bundle.getDifficulty());
+        assertEquals(snapshot.getCaseStory(), bundle.getCaseStory());
+        assertEquals("Sipho", bundle.getCulprit());
+        assertEquals("Sipho kept the ticket.", bundle.getSolution());
+        assertEquals(3, bundle.getClueCount());
+        assertEquals(2, bundle.getSuspectCount());
+        assertEquals(snapshot.getUnlockRuleLines(), bundle.getUnlockRules());
+
+        CaseSnapshot loaded = bundle.toSnapshot();
+        for (int i = 0; i < snapshot.getClues().size(); i++) {
+            Clue expected = snapshot.getClues().get(i);
+            Clue actual = loaded.getClues().get(i);
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getHint(), actual.getHint());
+            assertEquals(expected.getRelatedSuspect(), actual.getRelatedSuspect());
+        }
+        assertEquals(snapshot.getSuspectMap().keySet(), loaded.getSuspectMap().keySet());
+        Suspect sipho = loaded.getSuspectMap().get("Sipho");
+        assertEquals(snapshot.getSuspectMap().get("Sipho").getContexts(), sipho.getContexts());
+        assertEquals("At the taxi rank.", sipho.getResponse("Start", "Where were you last seen?"));
+        assertEquals(0, loaded.getSuspectMap().get("Nomsa").getContexts().size());
+        assertEquals(snapshot.getUnlockRuleLines(), loaded.getUnlockRuleLines());
+    }
+
+    @Test
+    void rejectsAnotherVersion() throws IOException {
+        Path file = dir.resolve("case.bundle");
+        CaseBundleCompiler.compile(testCase(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, CaseBundle.VERSION + 1);
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> CaseBundle.open(file));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotABundle() throws IOException {
+        Path file = dir.resolve("case.txt");
+        Files.writeString(file, "The Missing Ticket\nSomeone took it, and this is not a bundle.\n");
+
+        assertThrows(IOException.class, () -> CaseBundle.open(file));
+    }
+}
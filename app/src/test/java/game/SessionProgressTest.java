@@ -0,0 +1,167 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import model.Clue;
+import model.Suspect;
+import org.junit.jupiter.api.Test;
+
+class SessionProgressTest {
+
+    static CaseSnapshot testCase(String... suspectNames) {
+        List<Clue> clues = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            clues.add(new Clue("Clue " + i, "", suspectNames[i % suspectNames.length]));
+        }
+        Map<String, Suspect> suspects = new LinkedHashMap<>();
+        for (String name : suspectNames) {
+            Map<String, Map<String, String>> dialogue = new LinkedHashMap<>();
+            Map<String, String> start = new LinkedHashMap<>();
+            for (int q = 0; q < 20; q++) {
+                start.put("Question " + q + "?", "Answer " + q + ".");
+            }
+            dialogue.put("Start", start);
+            suspects.put(name, new Suspect(name, dialogue));
+        }
+        return new CaseSnapshot("A story.\n", clues, suspects, suspectNames[0], "");
+    }
+
+    private static List<byte[]> data(List<SessionProgress.Checkpoint> checkpoints) {
+        List<byte[]> records = new ArrayList<>();
+        for (SessionProgress.Checkpoint checkpoint : checkpoints) {
+            records.add(checkpoint.getData());
+        }
+        return records;
+    }
+
+    @Test
+    void restoresAFullSnapshotAndItsDeltas() throws IOException {
+        CaseSnapshot snapshot = testCase("Nomsa", "Sipho", "Thando");
+        SessionProgress progress = new SessionProgress(snapshot);
+        List<SessionProgress.Checkpoint> saved = new ArrayList<>();
+
+        progress.markClueSeen(3);
+        progress.recordQuestion("Nomsa", "Start", "Question 1?");
+        saved.add(progress.checkpoint());
+        progress.markClueSeen(17);
+        progress.recordQuestion("Sipho", "Start", "Question 4?");
+        progress.recordQuestion("Sipho", "Start", "Something typed");
+        saved.add(progress.checkpoint());
+        progress.recordAccusation("Thando", false);
+        progress.recordAccusation("Nobody", false);
+        progress.recordAccusation("Nomsa", true);
+        saved.add(progress.checkpoint());
+
+        assertTrue(saved.get(0).isFull());
+        assertFalse(saved.get(1).isFull());
+        assertFalse(saved.get(2).isFull());
+        SessionProgress restored = SessionProgress.restore(snapshot, data(saved));
+        assertTrue(restored.isClueSeen(3));
+        assertTrue(restored.isClueSeen(17));
+        assertEquals(2, restored.getCluesSeenCount());
+        assertTrue(restored.wasAsked("Nomsa", "Start", "Question 1?"));
+        assertTrue(restored.wasAsked("Sipho", "Start", "Question 4?"));
+        assertFalse(restored.wasAsked("Sipho", "Start", "Question 1?"));
+        assertEquals(3, restored.getQuestionCount());
+        assertEquals(Arrays.asList("Thando", "Nobody", "Nomsa"), restored.getAccusations());
+        assertTrue(restored.isSolved());
+        assertFalse(restored.hasChanges());
+    }
+
+    @Test
+    void continuesTheSequenceAfterARestore() throws IOException {
+        CaseSnapshot snapshot = testCase("Nomsa", "Sipho");
+        SessionProgress progress = new SessionProgress(snapshot);
+        List<SessionProgress.Checkpoint> saved = new ArrayList<>();
+        progress.markClueSeen(1);
+        saved.add(progress.checkpoint());
+
+        SessionProgress resumed = SessionProgress.restore(snapshot, data(saved));
+        resumed.markClueSeen(2);
+        saved.add(resumed.checkpoint());
+
+        SessionProgress restored = SessionProgress.restore(snapshot, data(saved));
+        assertTrue(restored.isClueSeen(1));
+        assertTrue(restored.isClueSeen(2));
+    }
+
+    @Test
+    void compactsIntoANewFullSnapshotAndSkipsOlderRecords() throws IOException {
+        CaseSnapshot snapshot = testCase("Nomsa", "Sipho", "Thando");
+        SessionProgress progress = new SessionProgress(snapshot);
+        List<SessionProgress.Checkpoint> saved = new ArrayList<>();
+        saved.add(progress.fullSnapshot());
+        int fullSnapshots = 1;
+        for (int i = 0; i < 40; i++) {
+            progress.markClueSeen(i);
+            progress.recordQuestion("Thando", "Start", "Question " + (i % 20) + "?");
+            progress.recordAccusation("Someone who is not a suspect " + i, false);
+            SessionProgress.Checkpoint checkpoint = progress.checkpoint();
+            if (checkpoint.isFull()) {
+                fullSnapshots++;
+            }
+            saved.add(checkpoint);
+        }
+        assertTrue(fullSnapshots > 1, "deltas larger than a snapshot should be compacted");
+
+        // Records before the last full snapshot are not needed, even if they are unreadable.
+        saved.set(0, new SessionProgress.Checkpoint(true, 0, new byte[] {'F', 99}));
+        SessionProgress restored = SessionProgress.restore(snapshot, data(saved));
+        assertEquals(40, restored.getCluesSeenCount());
+        assertEquals(40, restored.getQuestionCount());
+        assertEquals(40, restored.getAccusations().size());
+        assertTrue(restored.wasAsked("Thando", "Start", "Question 19?"));
+    }
+
+    @Test
+    void rejectsOutOfOrderAndMissingDeltas() {
+        CaseSnapshot snapshot = testCase("Nomsa", "Sipho");
+        SessionProgress progress = new SessionProgress(snapshot);
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            progress.markClueSeen(i);
+            records.add(progress.checkpoint().getData());
+        }
+
+        List<byte[]> swapped = new ArrayList<>(records);
+        swapped.set(1, records.get(2));
+        swapped.set(2, records.get(1));
+        assertThrows(IOException.class, () -> SessionProgress.restore(snapshot, swapped));
+
+        List<byte[]> gap = new ArrayList<>(records);
+        gap.remove(1);
+        assertThrows(IOException.class, () -> SessionProgress.restore(snapshot, gap));
+
+        assertThrows(IOException.class, () -> SessionProgress.restore(snapshot, records.subList(1, 3)));
+    }
+
+    @Test
+    void rejectsRecordsOfAnotherCase() {
+        SessionProgress progress = new SessionProgress(testCase("Nomsa", "Sipho"));
+        progress.markClueSeen(0);
+        List<byte[]> records = List.of(progress.checkpoint().getData());
+
+        assertThrows(IOException.class, () -> SessionProgress.restore(testCase("Lerato", "Bongani"), records));
+    }
+
+    @Test
+    void rejectsATruncatedRecord() {
+        CaseSnapshot snapshot = testCase("Nomsa", "Sipho");
+        SessionProgress progress = new SessionProgress(snapshot);
+        progress.markClueSeen(5);
+        progress.recordAccusation("Nomsa", true);
+        byte[] data = progress.checkpoint().getData();
+
+        List<byte[]> records = List.of(Arrays.copyOf(data, data.length - 2));
+        assertThrows(IOException.class, () -> SessionProgress.restore(snapshot, records));
+    }
+}
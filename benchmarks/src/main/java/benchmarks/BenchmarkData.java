@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the input files and dialogue trees the benchmarks run against.
+ */
+final class BenchmarkData {
+    static final String[] SUSPECTS = {"Nomsa", "Sipho", "Thando"};
+    private static final String[] WORDS = {"pantry", "key", "scones", "kitchen", "recipe", "Gogo",
+            "argument", "witness", "lunch", "locked", "seen", "near", "family", "tradition"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Writes a clue file with the given number of "description|hint|suspect" lines.
+     */
+    static Path writeClueFile(int lines) throws IOException {
+        Path file = Files.createTempFile("clues-" + lines + "-", ".txt");
+        file.toFile().deleteOnExit();
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(sentence(random, 16));
+                writer.write(" | ");
+                writer.write(sentence(random, 4));
+                writer.write(" | ");
+                writer.write(SUSPECTS[i % SUSPECTS.length]);
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes a narrative file with the given number of lines.
+     */
+    static Path writeCaseFile(int lines) throws IOException {
+        Path file = Files.createTempFile("case-" + lines + "-", ".txt");
+        file.toFile().deleteOnExit();
+        Random random = new Random(7);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(sentence(random, 20));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Builds a dialogue tree whose contexts form a chain of the given depth.
+     * Each context has {@code breadth} questions; the first one leads to the next context.
+     */
+    static Map<String, Map<String, String>> dialogueTree(int depth, int breadth) {
+        Map<String, Map<String, String>> tree = new LinkedHashMap<>();
+        String context = "Start";
+        for (int d = 0; d < depth; d++) {
+            Map<String, String> branch = new LinkedHashMap<>();
+            String next = null;
+            for (int q = 0; q < breadth; q++) {
+                String question = question(d, q);
+                branch.put(question, "Response " + d + "/" + q + ": I was in the main hall the whole time.");
+                if (q == 0) {
+                    next = question;
+                }
+            }
+            tree.put(context, branch);
+            context = next;
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the question text used by {@link #dialogueTree(int, int)}.
+     */
+    static String question(int depth, int index) {
+        return "Where exactly were you standing at level " + depth + " when question " + index + " came up?";
+    }
+
+    /**
+     * Returns the context a question at the given depth is asked in.
+     */
+    static String context(int depth) {
+        return depth == 0 ? "Start" : question(depth - 1, 0);
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import model.Clue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting clues for display.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClueBenchmark {
+    private final Clue fullClue = new Clue(
+            "A reliable witness reported that shortly before lunch, Sipho was the only person seen lingering near the locked pantry.",
+            "Check who holds a pantry key", "Sipho");
+    private final Clue plainClue = new Clue(
+            "Only a select few have keys to the pantry. Records show that recently, both Nomsa and Sipho used their access.");
+
+    @Benchmark
+    public String detailedDescription() {
+        return fullClue.getDetailedDescription();
+    }
+
+    @Benchmark
+    public String detailedDescriptionWithoutExtras() {
+        return plainClue.getDetailedDescription();
+    }
+}
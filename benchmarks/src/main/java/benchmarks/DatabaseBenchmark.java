@@ -0,0 +1,81 @@
+package benchmarks;
+
+import data.DatabaseManager;
+import data.GameStore;
+import data.InMemoryStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GameStore inserts and updates against in-memory and file-backed SQLite, and against InMemoryStore.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    @Param({"memory", "file", "store"})
+    public String storage;
+
+    private Path dbFile;
+    private GameStore store;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("store".equals(storage)) {
+            store = new InMemoryStore();
+            return;
+        }
+        String url;
+        if ("file".equals(storage)) {
+            dbFile = Files.createTempFile("database-", ".db");
+            url = "jdbc:sqlite:" + dbFile;
+        } else {
+            url = "jdbc:sqlite::memory:";
+        }
+        store = new DatabaseManager(url);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        if (dbFile != null) {
+            Files.deleteIfExists(dbFile);
+        }
+    }
+
+    @Benchmark
+    public void insertPlayer() {
+        store.insertPlayer("Detective", "Questioned Sipho");
+    }
+
+    @Benchmark
+    public void updateSuspect() {
+        store.updateSuspect(BenchmarkData.SUSPECTS[(int) (counter++ % 3)], (counter & 1) == 0);
+    }
+
+    @Benchmark
+    public void insertSuspect() {
+        // Suspect names are unique, so every insert needs a new one.
+        store.insertSuspect("Suspect-" + counter++, true);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import model.Suspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Suspect response lookups at different dialogue tree depths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DialogueBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int depth;
+
+    @Param({"4", "64"})
+    public int breadth;
+
+    private Suspect suspect;
+    private String deepestContext;
+    private String deepestQuestion;
+    private String[] contexts;
+    private String[] questions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        suspect = new Suspect("Sipho", BenchmarkData.dialogueTree(depth, breadth));
+        deepestContext = BenchmarkData.context(depth - 1);
+        deepestQuestion = BenchmarkData.question(depth - 1, breadth - 1);
+        contexts = new String[depth];
+        questions = new String[depth];
+        for (int level = 0; level < depth; level++) {
+            contexts[level] = BenchmarkData.context(level);
+            questions[level] = BenchmarkData.question(level, 0);
+        }
+    }
+
+    @Benchmark
+    public String responseAtDeepestLevel() {
+        return suspect.getResponse(deepestContext, deepestQuestion);
+    }
+
+    @Benchmark
+    public String responseWalkingLevels() {
+        int level = next++ % depth;
+        return suspect.getResponse(contexts[level], questions[level]);
+    }
+
+    @Benchmark
+    public String missingContext() {
+        return suspect.getResponse("No such context", deepestQuestion);
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import data.ClueFileParser;
+import data.FileManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import model.Clue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading the case narrative and clue files at different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileLoadBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int lines;
+
+    private Path clueFile;
+    private Path caseFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        clueFile = BenchmarkData.writeClueFile(lines);
+        caseFile = BenchmarkData.writeCaseFile(lines);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(clueFile);
+        Files.deleteIfExists(caseFile);
+    }
+
+    @Benchmark
+    public List<Clue> loadClues() {
+        return FileManager.loadClues(clueFile.toString());
+    }
+
+    @Benchmark
+    public long streamClues() throws IOException {
+        return ClueFileParser.stream(clueFile).count();
+    }
+
+    @Benchmark
+    public String loadCase() {
+        return FileManager.loadCase(caseFile.toString());
+    }
+}
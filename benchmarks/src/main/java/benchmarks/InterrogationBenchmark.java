@@ -0,0 +1,80 @@
+package benchmarks;
+
+import data.DatabaseManager;
+import data.GameStore;
+import data.InMemoryStore;
+import game.GameLogic;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GameLogic.askQuestion, including the suspect update it sends to the store,
+ * from one thread and from several threads sharing one game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterrogationBenchmark {
+
+    // SQLite with direct writes, SQLite with write-behind, or InMemoryStore.
+    @Param({"sqlite", "write-behind", "memory"})
+    public String store;
+
+    private Path dbFile;
+    private Path clueFile;
+    private Path caseFile;
+    private GameStore gameStore;
+    private GameLogic gameLogic;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dbFile = Files.createTempFile("interrogation-", ".db");
+        clueFile = BenchmarkData.writeClueFile(100);
+        caseFile = BenchmarkData.writeCaseFile(20);
+        if ("memory".equals(store)) {
+            gameStore = new InMemoryStore();
+        } else {
+            gameStore = new DatabaseManager("jdbc:sqlite:" + dbFile, "write-behind".equals(store));
+        }
+        gameLogic = new GameLogic(caseFile.toString(), clueFile.toString(), gameStore);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        gameStore.close();
+        Files.deleteIfExists(dbFile);
+        Files.deleteIfExists(clueFile);
+        Files.deleteIfExists(caseFile);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String askQuestionSingleThread() {
+        return gameLogic.askQuestion("Sipho", "Start", "Where were you last seen?");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String askQuestionFourThreads() {
+        return gameLogic.askQuestion("Sipho", "Start", "Where were you last seen?");
+    }
+}
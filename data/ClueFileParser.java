@@ -0,0 +1,350 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import model.Clue;
+import model.EvidenceType;
+
+/**
+ * Parses large clue files without regular expressions or per-line strings.
+ *
+ * The file is memory-mapped in chunks that end on line boundaries, and the chunks are parsed
+ * in parallel. Fields are located and trimmed directly in the mapped bytes, so the only strings
+ * allocated are the final field values. Results match {@link FileManager#loadClues(String)}:
+ * lines are "description|hint|relatedSuspect|evidence", missing fields become empty strings and
+ * any fields after the fourth are ignored. The evidence field lists {@link EvidenceType} kinds,
+ * e.g. "motive, means"; a field with unknown words establishes no evidence. The file is read
+ * as UTF-8.
+ */
+public final class ClueFileParser {
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 28;
+
+    private ClueFileParser() {
+    }
+
+    /**
+     * A line that {@link #parseReporting(Path)} could not turn into a clue.
+     */
+    public static class MalformedLine {
+        private final long lineNumber;
+        private final String reason;
+        private final String text;
+
+        MalformedLine(long lineNumber, String reason, String text) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+            this.text = text;
+        }
+
+        /**
+         * @return The 1-based line number in the file.
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason + ": " + text;
+        }
+    }
+
+    /**
+     * The clues and malformed lines found by {@link #parseReporting(Path)}.
+     */
+    public static class ParseResult {
+        private final List<Clue> clues;
+        private final List<MalformedLine> malformedLines;
+
+        ParseResult(List<Clue> clues, List<MalformedLine> malformedLines) {
+            this.clues = Collections.unmodifiableList(clues);
+            this.malformedLines = Collections.unmodifiableList(malformedLines);
+        }
+
+        public List<Clue> getClues() {
+            return clues;
+        }
+
+        public List<MalformedLine> getMalformedLines() {
+            return malformedLines;
+        }
+    }
+
+    /**
+     * Parses every line of the file into a clue, in file order.
+     *
+     * @param file The clue file.
+     * @return A List of Clue objects.
+     */
+    public static List<Clue> parse(Path file) throws IOException {
+        List<MappedByteBuffer> chunks = map(file);
+        List<List<Clue>> parts = chunks.parallelStream()
+                .map(chunk -> {
+                    List<Clue> clues = new ArrayList<>();
+                    new ChunkParser(chunk).forEach(clues::add);
+                    return clues;
+                })
+                .collect(Collectors.toList());
+        int size = 0;
+        for (List<Clue> part : parts) {
+            size += part.size();
+        }
+        List<Clue> clues = new ArrayList<>(size);
+        for (List<Clue> part : parts) {
+            clues.addAll(part);
+        }
+        return clues;
+    }
+
+    /**
+     * Returns the clues as a lazily materialized, ordered stream.
+     * A Clue is only created when the stream reaches its line; the stream may be made parallel.
+     *
+     * @param file The clue file.
+     * @return A stream of Clue objects.
+     */
+    public static Stream<Clue> stream(Path file) throws IOException {
+        return map(file).stream().flatMap(chunk -> {
+            ChunkParser parser = new ChunkParser(chunk);
+            return StreamSupport.stream(parser, false);
+        });
+    }
+
+    /**
+     * Parses the file like {@link #parse(Path)}, but reports lines with an empty description,
+     * unknown evidence or data after the fourth field instead of turning them into clues.
+     *
+     * @param file The clue file.
+     * @return The valid clues and the malformed lines.
+     */
+    public static ParseResult parseReporting(Path file) throws IOException {
+        List<MappedByteBuffer> chunks = map(file);
+        List<ChunkParser> parsers = new ArrayList<>();
+        for (MappedByteBuffer chunk : chunks) {
+            ChunkParser parser = new ChunkParser(chunk);
+            parser.reporting = true;
+            parsers.add(parser);
+        }
+        List<List<Clue>> parts = parsers.parallelStream()
+                .map(parser -> {
+                    List<Clue> clues = new ArrayList<>();
+                    parser.forEach(clues::add);
+                    return clues;
+                })
+                .collect(Collectors.toList());
+
+        List<Clue> clues = new ArrayList<>();
+        List<MalformedLine> malformed = new ArrayList<>();
+        long linesBefore = 0;
+        for (int i = 0; i < parsers.size(); i++) {
+            ChunkParser parser = parsers.get(i);
+            clues.addAll(parts.get(i));
+            // Chunks count lines from zero; shift them to file line numbers.
+            for (MalformedLine line : parser.malformed) {
+                malformed.add(new MalformedLine(linesBefore + line.lineNumber, line.reason, line.text));
+            }
+            linesBefore += parser.lineCount;
+        }
+        return new ParseResult(clues, malformed);
+    }
+
+    /**
+     * Maps the file as a list of read-only buffers that each end on a line boundary.
+     */
+    private static List<MappedByteBuffer> map(Path file) throws IOException {
+        List<MappedByteBuffer> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            long target = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L)));
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(size, start + target);
+                if (end < size) {
+                    end = nextLineStart(channel, end, size);
+                }
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+        // Mappings stay valid after the channel is closed.
+        return chunks;
+    }
+
+    /**
+     * Finds the position just after the next '\n' at or after the given position.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long pos = position;
+        while (pos < size) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses one mapped chunk line by line.
+     */
+    private static final class ChunkParser extends Spliterators.AbstractSpliterator<Clue> {
+        private final MappedByteBuffer buffer;
+        private final int limit;
+        private int position;
+        private byte[] scratch = new byte[256];
+
+        boolean reporting;
+        long lineCount;
+        final List<MalformedLine> malformed = new ArrayList<>();
+
+        ChunkParser(MappedByteBuffer buffer) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+        }
+
+        void forEach(Consumer<? super Clue> action) {
+            while (tryAdvance(action)) {
+                // keep going
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Clue> action) {
+            while (position < limit) {
+                int lineStart = position;
+                int lineEnd = lineStart;
+                while (lineEnd < limit) {
+                    byte b = buffer.get(lineEnd);
+                    if (b == '\n' || b == '\r') {
+                        break;
+                    }
+                    lineEnd++;
+                }
+                // Accept "\n", "\r" and "\r\n", as BufferedReader.readLine does.
+                position = lineEnd;
+                if (position < limit && buffer.get(position) == '\r') {
+                    position++;
+                }
+                if (position < limit && buffer.get(position) == '\n') {
+                    position++;
+                }
+                lineCount++;
+                Clue clue = parseLine(lineStart, lineEnd);
+                if (clue != null) {
+                    action.accept(clue);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Clue parseLine(int start, int end) {
+            int firstPipe = indexOfPipe(start, end);
+            int secondPipe = firstPipe < 0 ? -1 : indexOfPipe(firstPipe + 1, end);
+            int thirdPipe = secondPipe < 0 ? -1 : indexOfPipe(secondPipe + 1, end);
+            int fourthPipe = thirdPipe < 0 ? -1 : indexOfPipe(thirdPipe + 1, end);
+
+            int descriptionEnd = firstPipe < 0 ? end : firstPipe;
+            String description = field(start, descriptionEnd);
+            String hint = firstPipe < 0 ? "" : field(firstPipe + 1, secondPipe < 0 ? end : secondPipe);
+            String relatedSuspect = secondPipe < 0 ? "" : field(secondPipe + 1, thirdPipe < 0 ? end : thirdPipe);
+            int evidence = 0;
+            if (thirdPipe >= 0 && !isBlank(thirdPipe + 1, fourthPipe < 0 ? end : fourthPipe)) {
+                evidence = EvidenceType.parseMask(field(thirdPipe + 1, fourthPipe < 0 ? end : fourthPipe));
+            }
+
+            if (reporting) {
+                String reason = null;
+                if (description.isEmpty()) {
+                    reason = "missing description";
+                } else if (evidence < 0) {
+                    reason = "unknown evidence";
+                } else if (fourthPipe >= 0 && !isBlank(fourthPipe + 1, end)) {
+                    reason = "unexpected extra fields";
+                }
+                if (reason != null) {
+                    malformed.add(new MalformedLine(lineCount, reason, decode(start, end)));
+                    return null;
+                }
+            }
+            return new Clue(description, hint, relatedSuspect, Math.max(0, evidence));
+        }
+
+        private int indexOfPipe(int from, int end) {
+            for (int i = from; i < end; i++) {
+                if (buffer.get(i) == '|') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean isBlank(int from, int end) {
+            for (int i = from; i < end; i++) {
+                byte b = buffer.get(i);
+                if ((b & 0xFF) > ' ' && b != '|') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Decodes a field with surrounding whitespace removed, matching String.trim().
+         */
+        private String field(int start, int end) {
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+                end--;
+            }
+            return decode(start, end);
+        }
+
+        private String decode(int start, int end) {
+            int length = end - start;
+            if (length == 0) {
+                return "";
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(start, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package data;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.Metrics;
+
+/**
+ * A small SQLite connection pool.
+ * SQLite allows a single writer at a time, so the pool keeps exactly one writer connection
+ * and a set of read-only connections. Each connection caches its prepared statements.
+ * File databases are switched to WAL mode so readers do not block the writer.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    private final BlockingQueue<PooledConnection> writers = new ArrayBlockingQueue<>(1);
+    private final BlockingQueue<PooledConnection> readers;
+    private final List<PooledConnection> all = new ArrayList<>();
+
+    // Metrics
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalAcquireWaitNanos = new AtomicLong();
+    private final AtomicLong maxAcquireWaitNanos = new AtomicLong();
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong totalQueryNanos = new AtomicLong();
+    private final AtomicLong maxQueryNanos = new AtomicLong();
+
+    /**
+     * Opens the pool.
+     * @param dbURL   JDBC URL, e.g. "jdbc:sqlite:javadet.db".
+     * @param readers Number of read-only connections.
+     */
+    public ConnectionPool(String dbURL, int readers) throws SQLException {
+        boolean inMemory = isInMemory(dbURL);
+        writers.add(open(dbURL, writers, false, inMemory));
+        if (inMemory) {
+            // Every connection to ":memory:" is a separate database, so reads share the writer.
+            this.readers = writers;
+        } else {
+            int count = Math.max(1, readers);
+            this.readers = new ArrayBlockingQueue<>(count);
+            for (int i = 0; i < count; i++) {
+                this.readers.add(open(dbURL, this.readers, true, false));
+            }
+        }
+    }
+
+    private static boolean isInMemory(String dbURL) {
+        return dbURL.contains(":memory:") || dbURL.contains("mode=memory") || dbURL.equals("jdbc:sqlite:");
+    }
+
+    private PooledConnection open(String dbURL, BlockingQueue<PooledConnection> home,
+                                  boolean readOnly, boolean inMemory) throws SQLException {
+        Connection connection = DriverManager.getConnection(dbURL);
+        try (Statement stmt = connection.createStatement()) {
+            if (!inMemory) {
+                stmt.execute("PRAGMA journal_mode=WAL;");
+                stmt.execute("PRAGMA synchronous=NORMAL;");
+            }
+            stmt.execute("PRAGMA busy_timeout=5000;");
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only=1;");
+            }
+        }
+        PooledConnection pooled = new PooledConnection(connection, home);
+        all.add(pooled);
+        return pooled;
+    }
+
+    /**
+     * Borrows the writer connection; close the returned connection to give it back.
+     */
+    public PooledConnection acquireWriter() throws SQLException {
+        return acquire(writers);
+    }
+
+    /**
+     * Borrows a read-only connection; close the returned connection to give it back.
+     */
+    public PooledConnection acquireReader() throws SQLException {
+        return acquire(readers);
+    }
+
+    private PooledConnection acquire(BlockingQueue<PooledConnection> queue) throws SQLException {
+        long start = System.nanoTime();
+        PooledConnection pooled;
+        try {
+            pooled = queue.poll(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        if (pooled == null) {
+            throw new SQLException("Timed out waiting for a database connection");
+        }
+        long waited = System.nanoTime() - start;
+        acquireCount.incrementAndGet();
+        totalAcquireWaitNanos.addAndGet(waited);
+        maxAcquireWaitNanos.accumulateAndGet(waited, Math::max);
+        return pooled;
+    }
+
+    private void recordQuery(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        queryCount.incrementAndGet();
+        totalQueryNanos.addAndGet(elapsed);
+        maxQueryNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    public double getAverageAcquireWaitMicros() {
+        long count = acquireCount.get();
+        return count == 0 ? 0 : totalAcquireWaitNanos.get() / 1000.0 / count;
+    }
+
+    public double getMaxAcquireWaitMicros() {
+        return maxAcquireWaitNanos.get() / 1000.0;
+    }
+
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+
+    public double getAverageQueryMicros() {
+        long count = queryCount.get();
+        return count == 0 ? 0 : totalQueryNanos.get() / 1000.0 / count;
+    }
+
+    public double getMaxQueryMicros() {
+        return maxQueryNanos.get() / 1000.0;
+    }
+
+    /**
+     * Closes every connection and its cached statements.
+     */
+    @Override
+    public void close() {
+        for (PooledConnection pooled : all) {
+            pooled.closePhysical();
+        }
+    }
+
+    /**
+     * A borrowed connection with its own prepared-statement cache.
+     * Statements returned by {@link #prepare(String)} are owned by the cache and must not be closed.
+     */
+    public class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final BlockingQueue<PooledConnection> home;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection, BlockingQueue<PooledConnection> home) {
+            this.connection = connection;
+            this.home = home;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the cached statement for the SQL, preparing it on first use.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement pstmt = statements.get(sql);
+            if (pstmt == null) {
+                pstmt = connection.prepareStatement(sql);
+                statements.put(sql, pstmt);
+            }
+            return pstmt;
+        }
+
+        /**
+         * Records the latency of a query started at the given System.nanoTime() value.
+         */
+        public void recordQuery(long startNanos) {
+            ConnectionPool.this.recordQuery(startNanos);
+        }
+
+        /**
+         * Returns the connection to the pool.
+         */
+        @Override
+        public void close() {
+            home.offer(this);
+        }
+
+        private void closePhysical() {
+            try {
+                for (PreparedStatement pstmt : statements.values()) {
+                    pstmt.close();
+                }
+                statements.clear();
+                connection.close();
+            } catch (SQLException e) {
+                Metrics.recordError("db.pool.close", e);
+            }
+        }
+    }
+}
@@ -1,28 +1,118 @@
 package data;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import metrics.Metrics;
+import metrics.Timer;
+import model.CaseDifficulty;
 
 /**
  * Manages basic database operations using SQLite.
  * It stores player profiles, case progress, and suspect data.
+ * This is the durable {@link GameStore}; {@link InMemoryStore} is the fast one.
+ *
+ * Connections come from a {@link ConnectionPool}, so one manager can be shared by
+ * several sessions: writes go through the single writer connection and reads use
+ * the read-only connections.
+ *
+ * In write-behind mode suspect updates are coalesced in memory and written
+ * in batches by a dedicated writer thread, so callers never wait on SQLite.
+ * The same thread adds new question and accusation counts to the analytics tables;
+ * see {@link InvestigationAnalytics}.
+ *
+ * Each public operation is timed, and failures are counted, in the {@link Metrics} registry.
  */
-public class DatabaseManager {
-    private Connection connection;
+public class DatabaseManager implements GameStore {
+    private static final String INSERT_PLAYER = "INSERT INTO player (name, progress) VALUES (?, ?)";
+    private static final String INSERT_SUSPECT = "INSERT INTO suspect (name, questioned) VALUES (?, ?) " +
+            "ON CONFLICT(name) DO NOTHING";
+    private static final String UPSERT_SUSPECT = "INSERT INTO suspect (name, questioned) VALUES (?, ?) " +
+            "ON CONFLICT(name) DO UPDATE SET questioned = excluded.questioned";
+    private static final String SELECT_SUSPECT = "SELECT questioned FROM suspect WHERE name = ?";
+    private static final String INSERT_CHECKPOINT = "INSERT INTO session_checkpoint (player, full, data) VALUES (?, ?, ?)";
+    private static final String DELETE_CHECKPOINTS = "DELETE FROM session_checkpoint WHERE player = ?";
+    private static final String SELECT_CHECKPOINTS =
+            "SELECT data FROM session_checkpoint WHERE player = ? ORDER BY id";
+    private static final String UPSERT_SUSPECT_STATS = "INSERT INTO analytics_suspect " +
+            "(suspect, questions, accusations, correct) VALUES (?, ?, ?, ?) ON CONFLICT(suspect) DO UPDATE SET " +
+            "questions = questions + excluded.questions, accusations = accusations + excluded.accusations, " +
+            "correct = correct + excluded.correct";
+    private static final String UPSERT_QUESTION_STATS = "INSERT INTO analytics_question (suspect, question, asked) " +
+            "VALUES (?, ?, ?) ON CONFLICT(suspect, question) DO UPDATE SET asked = asked + excluded.asked";
+    private static final String UPSERT_DIFFICULTY_STATS = "INSERT INTO analytics_difficulty " +
+            "(difficulty, questions, incorrect, correct) VALUES (?, ?, ?, ?) ON CONFLICT(difficulty) DO UPDATE SET " +
+            "questions = questions + excluded.questions, incorrect = incorrect + excluded.incorrect, " +
+            "correct = correct + excluded.correct";
+    private static final long WRITE_BEHIND_INTERVAL_MILLIS = 200;
+    private static final int DEFAULT_READERS = 4;
+
+    private static final Timer INSERT_PLAYER_TIMER = Metrics.timer("db.insertPlayer");
+    private static final Timer UPDATE_SUSPECT_TIMER = Metrics.timer("db.updateSuspect");
+    private static final Timer IS_QUESTIONED_TIMER = Metrics.timer("db.isSuspectQuestioned");
+    private static final Timer FLUSH_SUSPECTS_TIMER = Metrics.timer("db.flushSuspects");
+    private static final Timer INSERT_SUSPECT_TIMER = Metrics.timer("db.insertSuspect");
+    private static final Timer SAVE_CHECKPOINT_TIMER = Metrics.timer("db.saveSessionCheckpoint");
+    private static final Timer LOAD_CHECKPOINTS_TIMER = Metrics.timer("db.loadSessionCheckpoints");
+    private static final Timer RECORD_QUESTION_TIMER = Metrics.timer("db.recordQuestion");
+    private static final Timer RECORD_ACCUSATION_TIMER = Metrics.timer("db.recordAccusation");
+    private static final Timer FLUSH_ANALYTICS_TIMER = Metrics.timer("db.flushAnalytics");
+    private static final Timer LOAD_ANALYTICS_TIMER = Metrics.timer("db.loadAnalytics");
+
+    private ConnectionPool pool;
+
+    // Suspect updates not yet written to the database (latest value per name).
+    private final Map<String, Boolean> pendingSuspects = new ConcurrentHashMap<>();
+    private ScheduledExecutorService writer;
+    // Loaded from the analytics tables at startup; pending increments are added to them on flush.
+    private final InvestigationAnalytics analytics = new InvestigationAnalytics();
 
     public DatabaseManager(String dbURL) {
+        this(dbURL, false);
+    }
+
+    /**
+     * @param dbURL       JDBC URL of the SQLite database.
+     * @param writeBehind Whether suspect updates are batched on a background writer thread.
+     */
+    public DatabaseManager(String dbURL, boolean writeBehind) {
+        this(dbURL, writeBehind, DEFAULT_READERS);
+    }
+
+    /**
+     * @param dbURL       JDBC URL of the SQLite database.
+     * @param writeBehind Whether suspect updates are batched on a background writer thread.
+     * @param readers     Number of pooled read-only connections.
+     */
+    public DatabaseManager(String dbURL, boolean writeBehind, int readers) {
         try {
-            connection = DriverManager.getConnection(dbURL);
+            pool = new ConnectionPool(dbURL, readers);
             System.out.println("Connected to the database successfully.");
             initializeDatabase();
+            loadAnalytics();
         } catch(SQLException e) {
-            e.printStackTrace();
+            Metrics.recordError("db.open", e);
+        }
+        if (writeBehind) {
+            writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "suspect-write-behind");
+                t.setDaemon(true);
+                return t;
+            });
+            writer.scheduleWithFixedDelay(this::flushPending,
+                    WRITE_BEHIND_INTERVAL_MILLIS, WRITE_BEHIND_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
         }
     }
 
     /**
      * Creates tables if they do not exist.
      */
-    private void initializeDatabase() {
+    private void initializeDatabase() throws SQLException {
         String createPlayerTable = "CREATE TABLE IF NOT EXISTS player (" +
                 "id INTEGER PRIMARY KEY AUTOINCREMENT," +
                 "name TEXT NOT NULL," +
@@ -31,65 +121,445 @@ public class DatabaseManager {
                 "id INTEGER PRIMARY KEY AUTOINCREMENT," +
                 "name TEXT NOT NULL," +
                 "questioned BOOLEAN NOT NULL);";
-        try (Statement stmt = connection.createStatement()) {
+        // Older databases may hold several rows per suspect; keep the latest before adding the unique index.
+        String removeDuplicateSuspects = "DELETE FROM suspect WHERE id NOT IN " +
+                "(SELECT MAX(id) FROM suspect GROUP BY name);";
+        String createSuspectNameIndex = "CREATE UNIQUE INDEX IF NOT EXISTS idx_suspect_name ON suspect (name);";
+        // Binary session checkpoints: the latest full snapshot per player, then the deltas after it.
+        String createCheckpointTable = "CREATE TABLE IF NOT EXISTS session_checkpoint (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "player TEXT NOT NULL," +
+                "full BOOLEAN NOT NULL," +
+                "data BLOB NOT NULL);";
+        String createCheckpointIndex = "CREATE INDEX IF NOT EXISTS idx_checkpoint_player ON session_checkpoint (player, id);";
+        // Analytics counters: one row per suspect, per question asked of a suspect, and per difficulty.
+        String createSuspectStatsTable = "CREATE TABLE IF NOT EXISTS analytics_suspect (" +
+                "suspect TEXT PRIMARY KEY," +
+                "questions INTEGER NOT NULL," +
+                "accusations INTEGER NOT NULL," +
+                "correct INTEGER NOT NULL);";
+        String createSuspectStatsIndex = "CREATE INDEX IF NOT EXISTS idx_analytics_suspect_questions " +
+                "ON analytics_suspect (questions DESC);";
+        String createQuestionStatsTable = "CREATE TABLE IF NOT EXISTS analytics_question (" +
+                "suspect TEXT NOT NULL," +
+                "question TEXT NOT NULL," +
+                "asked INTEGER NOT NULL," +
+                "PRIMARY KEY (suspect, question));";
+        String createQuestionStatsIndex = "CREATE INDEX IF NOT EXISTS idx_analytics_question_asked " +
+                "ON analytics_question (asked DESC);";
+        String createDifficultyStatsTable = "CREATE TABLE IF NOT EXISTS analytics_difficulty (" +
+                "difficulty TEXT PRIMARY KEY," +
+                "questions INTEGER NOT NULL," +
+                "incorrect INTEGER NOT NULL," +
+                "correct INTEGER NOT NULL);";
+        try (ConnectionPool.PooledConnection pc = pool.acquireWriter();
+             Statement stmt = pc.getConnection().createStatement()) {
             stmt.execute(createPlayerTable);
             stmt.execute(createSuspectTable);
+            stmt.execute(removeDuplicateSuspects);
+            stmt.execute(createSuspectNameIndex);
+            stmt.execute(createCheckpointTable);
+            stmt.execute(createCheckpointIndex);
+            stmt.execute(createSuspectStatsTable);
+            stmt.execute(createSuspectStatsIndex);
+            stmt.execute(createQuestionStatsTable);
+            stmt.execute(createQuestionStatsIndex);
+            stmt.execute(createDifficultyStatsTable);
         } catch(SQLException e) {
-            e.printStackTrace();
+            Metrics.recordError("db.initialize", e);
         }
     }
 
     /**
      * Inserts a player profile.
      */
+    @Override
     public void insertPlayer(String name, String progress) {
-        String sql = "INSERT INTO player (name, progress) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        long start = Metrics.start();
+        try (ConnectionPool.PooledConnection pc = pool.acquireWriter()) {
+            long queryStart = System.nanoTime();
+            PreparedStatement pstmt = pc.prepare(INSERT_PLAYER);
             pstmt.setString(1, name);
             pstmt.setString(2, progress);
             pstmt.executeUpdate();
+            pc.recordQuery(queryStart);
         } catch(SQLException e) {
-            e.printStackTrace();
+            Metrics.recordError(INSERT_PLAYER_TIMER, e);
         }
+        INSERT_PLAYER_TIMER.stop(start);
     }
 
     /**
-     * Updates a suspect’s questioned status.
+     * Updates a suspect’s questioned status, inserting the suspect if no record exists.
+     * In write-behind mode the update is only queued.
      */
+    @Override
     public void updateSuspect(String name, boolean questioned) {
-        String sql = "UPDATE suspect SET questioned = ? WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setBoolean(1, questioned);
-            pstmt.setString(2, name);
-            int rows = pstmt.executeUpdate();
-            if(rows == 0){
-                // If not found, insert new record.
-                insertSuspect(name, questioned);
+        long start = Metrics.start();
+        if (writer != null) {
+            pendingSuspects.put(name, questioned);
+            UPDATE_SUSPECT_TIMER.stop(start);
+            return;
+        }
+        try (ConnectionPool.PooledConnection pc = pool.acquireWriter()) {
+            long queryStart = System.nanoTime();
+            PreparedStatement pstmt = pc.prepare(UPSERT_SUSPECT);
+            pstmt.setString(1, name);
+            pstmt.setBoolean(2, questioned);
+            pstmt.executeUpdate();
+            pc.recordQuery(queryStart);
+        } catch(SQLException e) {
+            Metrics.recordError(UPDATE_SUSPECT_TIMER, e);
+        }
+        UPDATE_SUSPECT_TIMER.stop(start);
+    }
+
+    /**
+     * Returns a suspect’s questioned status, including updates not yet written.
+     */
+    @Override
+    public boolean isSuspectQuestioned(String name) {
+        long start = Metrics.start();
+        Boolean pending = pendingSuspects.get(name);
+        if (pending != null) {
+            IS_QUESTIONED_TIMER.stop(start);
+            return pending;
+        }
+        try (ConnectionPool.PooledConnection pc = pool.acquireReader()) {
+            long queryStart = System.nanoTime();
+            PreparedStatement pstmt = pc.prepare(SELECT_SUSPECT);
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                boolean questioned = rs.next() && rs.getBoolean(1);
+                pc.recordQuery(queryStart);
+                return questioned;
+            }
+        } catch(SQLException e) {
+            Metrics.recordError(IS_QUESTIONED_TIMER, e);
+            return false;
+        } finally {
+            IS_QUESTIONED_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Writes all queued suspect updates as one batch inside a single transaction.
+     */
+    public void flushSuspects() {
+        if (pendingSuspects.isEmpty() || pool == null) {
+            return;
+        }
+        long start = Metrics.start();
+        List<Map.Entry<String, Boolean>> batch = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : pendingSuspects.entrySet()) {
+            batch.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        try (ConnectionPool.PooledConnection pc = pool.acquireWriter()) {
+            Connection connection = pc.getConnection();
+            long queryStart = System.nanoTime();
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = pc.prepare(UPSERT_SUSPECT);
+                for (Map.Entry<String, Boolean> entry : batch) {
+                    pstmt.setString(1, entry.getKey());
+                    pstmt.setBoolean(2, entry.getValue());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                connection.commit();
+            } catch(SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            pc.recordQuery(queryStart);
+            // Only drop entries that were not overwritten while the batch was being written.
+            for (Map.Entry<String, Boolean> entry : batch) {
+                pendingSuspects.remove(entry.getKey(), entry.getValue());
             }
         } catch(SQLException e) {
-            e.printStackTrace();
+            Metrics.recordError(FLUSH_SUSPECTS_TIMER, e);
         }
+        FLUSH_SUSPECTS_TIMER.stop(start);
     }
 
     /**
-     * Inserts a new suspect record.
+     * Inserts a new suspect record; an existing suspect of the same name is left unchanged.
      */
+    @Override
     public void insertSuspect(String name, boolean questioned) {
-        String sql = "INSERT INTO suspect (name, questioned) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        long start = Metrics.start();
+        try (ConnectionPool.PooledConnection pc = pool.acquireWriter()) {
+            long queryStart = System.nanoTime();
+            PreparedStatement pstmt = pc.prepare(INSERT_SUSPECT);
             pstmt.setString(1, name);
             pstmt.setBoolean(2, questioned);
             pstmt.executeUpdate();
+            pc.recordQuery(queryStart);
         } catch(SQLException e) {
-            e.printStackTrace();
+            Metrics.recordError(INSERT_SUSPECT_TIMER, e);
         }
+        INSERT_SUSPECT_TIMER.stop(start);
     }
 
-    public void closeConnection() {
-        try {
-            if(connection != null) connection.close();
+    /**
+     * Stores a session checkpoint for a player. A full snapshot replaces every earlier
+     * checkpoint of the player, in the same transaction.
+     *
+     * @param player The player the session belongs to.
+     * @param full   Whether the data is a full snapshot rather than a delta.
+     * @param data   The encoded checkpoint.
+     */
+    @Override
+    public void saveSessionCheckpoint(String player, boolean full, byte[] data) {
+        long start = Metrics.start();
+        try (ConnectionPool.PooledConnection pc = pool.acquireWriter()) {
+            Connection connection = pc.getConnection();
+            long queryStart = System.nanoTime();
+            connection.setAutoCommit(false);
+            try {
+                if (full) {
+                    PreparedStatement delete = pc.prepare(DELETE_CHECKPOINTS);
+                    delete.setString(1, player);
+                    delete.executeUpdate();
+                }
+                PreparedStatement insert = pc.prepare(INSERT_CHECKPOINT);
+                insert.setString(1, player);
+                insert.setBoolean(2, full);
+                insert.setBytes(3, data);
+                insert.executeUpdate();
+                connection.commit();
+            } catch(SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            pc.recordQuery(queryStart);
+        } catch(SQLException e) {
+            Metrics.recordError(SAVE_CHECKPOINT_TIMER, e);
+        }
+        SAVE_CHECKPOINT_TIMER.stop(start);
+    }
+
+    /**
+     * Returns a player's session checkpoints, oldest first: a full snapshot and the deltas after it.
+     */
+    @Override
+    public List<byte[]> loadSessionCheckpoints(String player) {
+        long start = Metrics.start();
+        List<byte[]> checkpoints = new ArrayList<>();
+        try (ConnectionPool.PooledConnection pc = pool.acquireReader()) {
+            long queryStart = System.nanoTime();
+            PreparedStatement pstmt = pc.prepare(SELECT_CHECKPOINTS);
+            pstmt.setString(1, player);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    checkpoints.add(rs.getBytes(1));
+                }
+            }
+            pc.recordQuery(queryStart);
+        } catch(SQLException e) {
+            Metrics.recordError(LOAD_CHECKPOINTS_TIMER, e);
+        }
+        LOAD_CHECKPOINTS_TIMER.stop(start);
+        return checkpoints;
+    }
+
+    /**
+     * Reads the analytics tables into the in-memory counters.
+     */
+    private void loadAnalytics() {
+        long start = Metrics.start();
+        try (ConnectionPool.PooledConnection pc = pool.acquireReader();
+             Statement stmt = pc.getConnection().createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT suspect, questions, accusations, correct FROM analytics_suspect")) {
+                while (rs.next()) {
+                    InvestigationAnalytics.SuspectCounts counts = analytics.suspect(rs.getString(1));
+                    counts.questions.restore(rs.getLong(2));
+                    counts.accusations.restore(rs.getLong(3));
+                    counts.correct.restore(rs.getLong(4));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT suspect, question, asked FROM analytics_question")) {
+                while (rs.next()) {
+                    analytics.suspect(rs.getString(1)).questionCounts
+                            .computeIfAbsent(rs.getString(2), q -> new InvestigationAnalytics.Count())
+                            .restore(rs.getLong(3));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT difficulty, questions, incorrect, correct FROM analytics_difficulty")) {
+                while (rs.next()) {
+                    CaseDifficulty difficulty = CaseDifficulty.valueOf(rs.getString(1));
+                    analytics.getQuestionCounter(difficulty).restore(rs.getLong(2));
+                    analytics.getOutcomeCounter(difficulty, false).restore(rs.getLong(3));
+                    analytics.getOutcomeCounter(difficulty, true).restore(rs.getLong(4));
+                }
+            }
+        } catch(SQLException | IllegalArgumentException e) {
+            Metrics.recordError(LOAD_ANALYTICS_TIMER, e);
+        }
+        LOAD_ANALYTICS_TIMER.stop(start);
+    }
+
+    /**
+     * Counts a question in the analytics. Without write-behind the count is written at once.
+     */
+    @Override
+    public void recordQuestion(String suspect, String question, CaseDifficulty difficulty) {
+        long start = Metrics.start();
+        analytics.questionAsked(suspect, question, difficulty);
+        if (writer == null) {
+            flushAnalytics();
+        }
+        RECORD_QUESTION_TIMER.stop(start);
+    }
+
+    /**
+     * Counts an accusation in the analytics. Without write-behind the count is written at once.
+     */
+    @Override
+    public void recordAccusation(String suspect, boolean correct, CaseDifficulty difficulty) {
+        long start = Metrics.start();
+        analytics.accusationMade(suspect, correct, difficulty);
+        if (writer == null) {
+            flushAnalytics();
+        }
+        RECORD_ACCUSATION_TIMER.stop(start);
+    }
+
+    @Override
+    public InvestigationAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * Adds the analytics counts not yet written to the analytics tables, in one transaction.
+     * If the write fails the counts stay pending for the next flush.
+     */
+    public void flushAnalytics() {
+        if (pool == null) {
+            return;
+        }
+        List<String> suspects = analytics.takeDirtySuspects();
+        CaseDifficulty[] difficulties = CaseDifficulty.values();
+        long start = Metrics.start();
+        // Every drained counter and its count, so a failed write can put them back.
+        List<InvestigationAnalytics.Count> drained = new ArrayList<>();
+        List<Long> drainedCounts = new ArrayList<>();
+        try (ConnectionPool.PooledConnection pc = pool.acquireWriter()) {
+            Connection connection = pc.getConnection();
+            long queryStart = System.nanoTime();
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement suspectStats = pc.prepare(UPSERT_SUSPECT_STATS);
+                PreparedStatement questionStats = pc.prepare(UPSERT_QUESTION_STATS);
+                PreparedStatement difficultyStats = pc.prepare(UPSERT_DIFFICULTY_STATS);
+                boolean anySuspect = false;
+                boolean anyQuestion = false;
+                boolean anyDifficulty = false;
+                for (String name : suspects) {
+                    InvestigationAnalytics.SuspectCounts counts = analytics.suspect(name);
+                    long questions = drain(counts.questions, drained, drainedCounts);
+                    long accusations = drain(counts.accusations, drained, drainedCounts);
+                    long correct = drain(counts.correct, drained, drainedCounts);
+                    if (questions + accusations + correct > 0) {
+                        suspectStats.setString(1, name);
+                        suspectStats.setLong(2, questions);
+                        suspectStats.setLong(3, accusations);
+                        suspectStats.setLong(4, correct);
+                        suspectStats.addBatch();
+                        anySuspect = true;
+                    }
+                    for (Map.Entry<String, InvestigationAnalytics.Count> question : counts.questionCounts.entrySet()) {
+                        long asked = drain(question.getValue(), drained, drainedCounts);
+                        if (asked > 0) {
+                            questionStats.setString(1, name);
+                            questionStats.setString(2, question.getKey());
+                            questionStats.setLong(3, asked);
+                            questionStats.addBatch();
+                            anyQuestion = true;
+                        }
+                    }
+                }
+                for (CaseDifficulty difficulty : difficulties) {
+                    long questions = drain(analytics.getQuestionCounter(difficulty), drained, drainedCounts);
+                    long incorrect = drain(analytics.getOutcomeCounter(difficulty, false), drained, drainedCounts);
+                    long correct = drain(analytics.getOutcomeCounter(difficulty, true), drained, drainedCounts);
+                    if (questions + incorrect + correct > 0) {
+                        difficultyStats.setString(1, difficulty.name());
+                        difficultyStats.setLong(2, questions);
+                        difficultyStats.setLong(3, incorrect);
+                        difficultyStats.setLong(4, correct);
+                        difficultyStats.addBatch();
+                        anyDifficulty = true;
+                    }
+                }
+                if (anySuspect) {
+                    suspectStats.executeBatch();
+                }
+                if (anyQuestion) {
+                    questionStats.executeBatch();
+                }
+                if (anyDifficulty) {
+                    difficultyStats.executeBatch();
+                }
+                connection.commit();
+            } catch(SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            pc.recordQuery(queryStart);
         } catch(SQLException e) {
-            e.printStackTrace();
+            for (int i = 0; i < drained.size(); i++) {
+                drained.get(i).pending.add(drainedCounts.get(i));
+            }
+            analytics.markDirty(suspects);
+            Metrics.recordError(FLUSH_ANALYTICS_TIMER, e);
+        }
+        FLUSH_ANALYTICS_TIMER.stop(start);
+    }
+
+    private static long drain(InvestigationAnalytics.Count count, List<InvestigationAnalytics.Count> drained,
+                              List<Long> drainedCounts) {
+        long value = count.drainPending();
+        if (value != 0) {
+            drained.add(count);
+            drainedCounts.add(value);
+        }
+        return value;
+    }
+
+    private void flushPending() {
+        flushSuspects();
+        flushAnalytics();
+    }
+
+    /**
+     * @return The connection pool, for acquire-wait and query-latency metrics.
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        closeConnection();
+    }
+
+    public void closeConnection() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushPending();
         }
+        if (pool != null) pool.close();
     }
-}
\ No newline at end of file
+}
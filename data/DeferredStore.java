@@ -0,0 +1,86 @@
+package data;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import model.CaseDifficulty;
+
+/**
+ * A {@link GameStore} that is still being opened in the background.
+ *
+ * The game can start on it right away; the first call that needs the real store waits for it
+ * to open, and every later call goes straight through. Calls must not be made on the Event
+ * Dispatch Thread, since the first one may wait on SQLite.
+ */
+public class DeferredStore implements GameStore {
+    private final CompletableFuture<GameStore> opening;
+
+    /**
+     * @param opening Completes with the open store.
+     */
+    public DeferredStore(CompletableFuture<GameStore> opening) {
+        this.opening = opening;
+    }
+
+    /**
+     * @return The open store, once it is open.
+     */
+    public GameStore get() {
+        return opening.join();
+    }
+
+    @Override
+    public void insertPlayer(String name, String progress) {
+        get().insertPlayer(name, progress);
+    }
+
+    @Override
+    public void updateSuspect(String name, boolean questioned) {
+        get().updateSuspect(name, questioned);
+    }
+
+    @Override
+    public void insertSuspect(String name, boolean questioned) {
+        get().insertSuspect(name, questioned);
+    }
+
+    @Override
+    public boolean isSuspectQuestioned(String name) {
+        return get().isSuspectQuestioned(name);
+    }
+
+    @Override
+    public void saveSessionCheckpoint(String player, boolean full, byte[] data) {
+        get().saveSessionCheckpoint(player, full, data);
+    }
+
+    @Override
+    public List<byte[]> loadSessionCheckpoints(String player) {
+        return get().loadSessionCheckpoints(player);
+    }
+
+    @Override
+    public void recordQuestion(String suspect, String question, CaseDifficulty difficulty) {
+        get().recordQuestion(suspect, question, difficulty);
+    }
+
+    @Override
+    public void recordAccusation(String suspect, boolean correct, CaseDifficulty difficulty) {
+        get().recordAccusation(suspect, correct, difficulty);
+    }
+
+    @Override
+    public InvestigationAnalytics getAnalytics() {
+        return get().getAnalytics();
+    }
+
+    /**
+     * Closes the store once it is open; does nothing if it failed to open.
+     */
+    @Override
+    public void close() {
+        GameStore store = opening.handle((open, error) -> open).join();
+        if (store != null) {
+            store.close();
+        }
+    }
+}
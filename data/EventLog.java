@@ -0,0 +1,427 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import metrics.Metrics;
+import metrics.Timer;
+import model.Clue;
+
+/**
+ * An append-only log of {@link InvestigationEvent}s, stored as size-bounded segment files.
+ *
+ * Events are written in a compact binary encoding to "events-NNNNNN.seg". When a segment
+ * reaches its size limit a new one is started, and the oldest segments are deleted once there
+ * are more than the configured number. Each segment has an index file, "events-NNNNNN.idx",
+ * holding the time range and session range of the segment and the timestamp, session and
+ * offset of every event, so {@link EventLogReader} can replay one session or time range by
+ * reading only the segments and records involved.
+ *
+ * Record layout (big-endian): length, then type, timestamp, sessionId, fieldCount, and per
+ * field a length and its UTF-8 bytes; lengths and counts are varints. Timestamps never go
+ * backwards within a log, so the index can be searched by time.
+ *
+ * A clue discovered again in the same session is not logged a second time. That state is kept
+ * in memory, so call {@link #endSession(long)} when a session ends.
+ */
+public class EventLog implements AutoCloseable {
+    private static final Timer APPEND = Metrics.timer("events.append");
+
+    static final int INDEX_MAGIC = 0x4A444549; // "JDEI"
+    static final int INDEX_VERSION = 1;
+    // magic, version, count, reserved, minTimestamp, maxTimestamp, minSession, maxSession
+    static final int INDEX_HEADER_SIZE = 4 * Integer.BYTES + 4 * Long.BYTES;
+    // timestamp, sessionId, offset
+    static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+    static final Pattern SEGMENT_NAME = Pattern.compile("events-(\\d{6})\\.seg");
+
+    private static final long DEFAULT_SEGMENT_BYTES = 8L << 20;
+    private static final int DEFAULT_MAX_SEGMENTS = 64;
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final int maxSegments;
+    private final List<Integer> segments = new ArrayList<>();
+    private final Map<Long, Set<String>> discoveredClues = new ConcurrentHashMap<>();
+
+    // The segment being appended to.
+    private FileChannel segment;
+    private FileChannel index;
+    private long segmentSize;
+    private int count;
+    private long minTimestamp;
+    private long maxTimestamp;
+    private long minSession;
+    private long maxSession;
+
+    private long lastTimestamp;
+    private long lastSessionId;
+    private ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    private long suppressedDuplicates;
+    private boolean closed;
+
+    /**
+     * Opens the log with 8 MiB segments, keeping at most 64 of them.
+     *
+     * @param directory The directory holding the segments; created if missing.
+     */
+    public EventLog(String directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * @param directory       The directory holding the segments; created if missing.
+     * @param maxSegmentBytes The size at which a new segment is started.
+     * @param maxSegments     How many segments to keep; older ones are deleted.
+     */
+    public EventLog(String directory, long maxSegmentBytes, int maxSegments) throws IOException {
+        if (maxSegmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segments are limited to 2 GiB");
+        }
+        this.directory = Paths.get(directory);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(this.directory);
+        segments.addAll(listSegments(this.directory));
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            recover(segments.get(segments.size() - 1));
+        }
+    }
+
+    /**
+     * Returns the numbers of the segments in a log directory, oldest first.
+     */
+    static List<Integer> listSegments(Path directory) throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher m = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    numbers.add(Integer.parseInt(m.group(1)));
+                }
+            });
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    static Path segmentFile(Path directory, int number) {
+        return directory.resolve(String.format("events-%06d.seg", number));
+    }
+
+    static Path indexFile(Path directory, int number) {
+        return directory.resolve(String.format("events-%06d.idx", number));
+    }
+
+    private void openSegment(int number) throws IOException {
+        segment = FileChannel.open(segmentFile(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexFile(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        count = 0;
+        minTimestamp = Long.MAX_VALUE;
+        maxTimestamp = Long.MIN_VALUE;
+        minSession = Long.MAX_VALUE;
+        maxSession = Long.MIN_VALUE;
+        index.truncate(0);
+        writeIndexHeader();
+        if (!segments.contains(number)) {
+            segments.add(number);
+        }
+    }
+
+    /**
+     * Reopens the last segment and rebuilds its index from the records, since the process may
+     * have stopped between writing a record and its index entry. A torn final record is dropped.
+     */
+    private void recover(int number) throws IOException {
+        openSegment(number);
+        long size = segment.size();
+        ByteBuffer header = ByteBuffer.allocate(5);
+        long position = 0;
+        while (position < size) {
+            header.clear();
+            segment.read(header, position);
+            header.flip();
+            if (header.remaining() < 1) {
+                break;
+            }
+            int lengthBytes = varintSize(header);
+            if (lengthBytes < 0 || position + lengthBytes > size) {
+                break;
+            }
+            header.rewind();
+            int length = readVarint(header);
+            long end = position + lengthBytes + length;
+            if (end > size || length < 1 + 2 * Long.BYTES) {
+                break;
+            }
+            ByteBuffer fixed = ByteBuffer.allocate(1 + 2 * Long.BYTES);
+            segment.read(fixed, position + lengthBytes);
+            fixed.flip();
+            fixed.get();
+            long timestamp = fixed.getLong();
+            long sessionId = fixed.getLong();
+            addIndexEntry(timestamp, sessionId, (int) position);
+            position = end;
+        }
+        segment.truncate(position);
+        segmentSize = position;
+        writeIndexHeader();
+        lastTimestamp = count == 0 ? 0 : maxTimestamp;
+        lastSessionId = count == 0 ? 0 : maxSession;
+    }
+
+    /**
+     * Starts a new session and logs that its case started.
+     *
+     * @param caseTitle A name for the case being played.
+     * @return The new session's id, which increases with every session in this log.
+     */
+    public synchronized long startSession(String caseTitle) {
+        long sessionId = Math.max(System.currentTimeMillis(), lastSessionId + 1);
+        lastSessionId = sessionId;
+        append(new InvestigationEvent(InvestigationEvent.Type.CASE_STARTED, 0, sessionId, caseTitle));
+        return sessionId;
+    }
+
+    /**
+     * Logs that a clue was discovered, unless it already was in this session.
+     *
+     * @return false if the event was suppressed as a duplicate.
+     */
+    public boolean clueDiscovered(long sessionId, Clue clue) {
+        String key = clue.getDescription() + '\u001F' + clue.getRelatedSuspect();
+        if (!discoveredClues.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(key)) {
+            synchronized (this) {
+                suppressedDuplicates++;
+            }
+            return false;
+        }
+        append(new InvestigationEvent(InvestigationEvent.Type.CLUE_DISCOVERED, 0, sessionId,
+                clue.getDescription(), clue.getRelatedSuspect()));
+        return true;
+    }
+
+    /**
+     * Logs a question put to a suspect.
+     */
+    public void questionAsked(long sessionId, String suspect, String context, String question) {
+        append(new InvestigationEvent(InvestigationEvent.Type.QUESTION_ASKED, 0, sessionId,
+                suspect, context, question));
+    }
+
+    /**
+     * Logs an accusation and whether it was correct.
+     */
+    public void accusationMade(long sessionId, String suspect, boolean correct) {
+        append(new InvestigationEvent(InvestigationEvent.Type.ACCUSATION_MADE, 0, sessionId,
+                suspect, correct ? "correct" : "incorrect"));
+    }
+
+    /**
+     * Forgets a session's discovered clues.
+     */
+    public void endSession(long sessionId) {
+        discoveredClues.remove(sessionId);
+    }
+
+    /**
+     * Appends an event. Its timestamp is replaced by the current time, or by the previous
+     * event's time if the clock went backwards.
+     */
+    public synchronized void append(InvestigationEvent event) {
+        if (closed) {
+            return;
+        }
+        long start = Metrics.start();
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+        lastTimestamp = timestamp;
+        try {
+            ByteBuffer record = encode(event, timestamp);
+            if (segmentSize > 0 && segmentSize + record.remaining() > maxSegmentBytes) {
+                rotate();
+            }
+            int offset = (int) segmentSize;
+            while (record.hasRemaining()) {
+                segmentSize += segment.write(record, segmentSize);
+            }
+            addIndexEntry(timestamp, event.getSessionId(), offset);
+        } catch (IOException e) {
+            Metrics.recordError(APPEND, e);
+        }
+        APPEND.stop(start);
+    }
+
+    private ByteBuffer encode(InvestigationEvent event, long timestamp) {
+        int fieldCount = event.getFieldCount();
+        byte[][] encoded = new byte[fieldCount][];
+        int bodyLength = 1 + 2 * Long.BYTES + varintLength(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            encoded[i] = event.getField(i).getBytes(StandardCharsets.UTF_8);
+            bodyLength += varintLength(encoded[i].length) + encoded[i].length;
+        }
+        int total = varintLength(bodyLength) + bodyLength;
+        if (buffer.capacity() < total) {
+            buffer = ByteBuffer.allocate(Math.max(total, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        writeVarint(buffer, bodyLength);
+        buffer.put((byte) event.getType().ordinal());
+        buffer.putLong(timestamp);
+        buffer.putLong(event.getSessionId());
+        writeVarint(buffer, fieldCount);
+        for (byte[] field : encoded) {
+            writeVarint(buffer, field.length);
+            buffer.put(field);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void addIndexEntry(long timestamp, long sessionId, int offset) throws IOException {
+        entry.clear();
+        entry.putLong(timestamp).putLong(sessionId).putInt(offset).flip();
+        long position = INDEX_HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE;
+        while (entry.hasRemaining()) {
+            position += index.write(entry, position);
+        }
+        count++;
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        minSession = Math.min(minSession, sessionId);
+        maxSession = Math.max(maxSession, sessionId);
+    }
+
+    /**
+     * Writes the index header. Readers trust it only when its count matches the index length,
+     * so it only needs rewriting when a segment is sealed or the log is synced.
+     */
+    private void writeIndexHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putInt(count).putInt(0)
+                .putLong(minTimestamp).putLong(maxTimestamp).putLong(minSession).putLong(maxSession)
+                .flip();
+        index.write(header, 0);
+    }
+
+    private void rotate() throws IOException {
+        sealSegment();
+        openSegment(segments.get(segments.size() - 1) + 1);
+        while (segments.size() > maxSegments) {
+            int oldest = segments.remove(0);
+            Files.deleteIfExists(segmentFile(directory, oldest));
+            Files.deleteIfExists(indexFile(directory, oldest));
+        }
+    }
+
+    private void sealSegment() throws IOException {
+        writeIndexHeader();
+        segment.force(false);
+        index.force(false);
+        segment.close();
+        index.close();
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     */
+    public synchronized void sync() {
+        if (closed) {
+            return;
+        }
+        try {
+            writeIndexHeader();
+            segment.force(false);
+            index.force(false);
+        } catch (IOException e) {
+            Metrics.recordError("events.sync", e);
+        }
+    }
+
+    /**
+     * Syncs and closes the log.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            sealSegment();
+        } catch (IOException e) {
+            Metrics.recordError("events.close", e);
+        }
+        closed = true;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getSuppressedDuplicates() {
+        return suppressedDuplicates;
+    }
+
+    static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Returns how many bytes the varint at the buffer's position takes, or -1 if it is cut off.
+     */
+    private static int varintSize(ByteBuffer buffer) {
+        for (int i = 0; i < Math.min(5, buffer.remaining()); i++) {
+            if ((buffer.get(buffer.position() + i) & 0x80) == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
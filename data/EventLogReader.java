@@ -0,0 +1,203 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Replays events from an {@link EventLog} directory through memory mappings.
+ *
+ * Only the segment indexes are read when the reader opens. A replay skips every segment whose
+ * time or session range cannot match, finds the matching records through the index, and
+ * decodes just those records from the mapped segment. The reader sees the log as it was when
+ * it was opened; open a new reader to see later events.
+ *
+ * Usage: {@code java data.EventLogReader <logDirectory> [sessionId]} prints the events.
+ */
+public class EventLogReader {
+    private static final InvestigationEvent.Type[] TYPES = InvestigationEvent.Type.values();
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * One segment's index, with its data file mapped on first use.
+     */
+    private static final class Segment {
+        final Path dataFile;
+        final MappedByteBuffer index;
+        final int count;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        long minSession = Long.MAX_VALUE;
+        long maxSession = Long.MIN_VALUE;
+        MappedByteBuffer data;
+
+        Segment(Path dataFile, MappedByteBuffer index) throws IOException {
+            this.dataFile = dataFile;
+            this.index = index;
+            if (index.limit() < EventLog.INDEX_HEADER_SIZE || index.getInt(0) != EventLog.INDEX_MAGIC) {
+                throw new IOException("Bad event index for " + dataFile);
+            }
+            this.count = (index.limit() - EventLog.INDEX_HEADER_SIZE) / EventLog.INDEX_ENTRY_SIZE;
+            if (index.getInt(8) == count) {
+                minTimestamp = index.getLong(16);
+                maxTimestamp = index.getLong(24);
+                minSession = index.getLong(32);
+                maxSession = index.getLong(40);
+            } else {
+                // The segment is still being written and its header is behind; use the entries.
+                for (int i = 0; i < count; i++) {
+                    minTimestamp = Math.min(minTimestamp, timestamp(i));
+                    maxTimestamp = Math.max(maxTimestamp, timestamp(i));
+                    minSession = Math.min(minSession, session(i));
+                    maxSession = Math.max(maxSession, session(i));
+                }
+            }
+        }
+
+        long timestamp(int i) {
+            return index.getLong(EventLog.INDEX_HEADER_SIZE + i * EventLog.INDEX_ENTRY_SIZE);
+        }
+
+        long session(int i) {
+            return index.getLong(EventLog.INDEX_HEADER_SIZE + i * EventLog.INDEX_ENTRY_SIZE + Long.BYTES);
+        }
+
+        int offset(int i) {
+            return index.getInt(EventLog.INDEX_HEADER_SIZE + i * EventLog.INDEX_ENTRY_SIZE + 2 * Long.BYTES);
+        }
+
+        /**
+         * @return The first entry with a timestamp at or after the given time.
+         */
+        int firstAtOrAfter(long timestamp) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamp(mid) < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        InvestigationEvent read(int i) throws IOException {
+            if (data == null) {
+                try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                    data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            ByteBuffer record = data.duplicate();
+            record.position(offset(i));
+            EventLog.readVarint(record);
+            InvestigationEvent.Type type = TYPES[record.get()];
+            long timestamp = record.getLong();
+            long sessionId = record.getLong();
+            String[] fields = new String[EventLog.readVarint(record)];
+            for (int f = 0; f < fields.length; f++) {
+                byte[] bytes = new byte[EventLog.readVarint(record)];
+                record.get(bytes);
+                fields[f] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new InvestigationEvent(type, timestamp, sessionId, fields);
+        }
+    }
+
+    private EventLogReader() {
+    }
+
+    /**
+     * Opens the log in a directory by mapping its segment indexes.
+     *
+     * @param directory The log directory.
+     * @return The reader.
+     */
+    public static EventLogReader open(String directory) throws IOException {
+        Path dir = Paths.get(directory);
+        EventLogReader reader = new EventLogReader();
+        for (int number : EventLog.listSegments(dir)) {
+            try (FileChannel channel = FileChannel.open(EventLog.indexFile(dir, number), StandardOpenOption.READ)) {
+                MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                reader.segments.add(new Segment(EventLog.segmentFile(dir, number), index));
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Replays every event of one session, in order.
+     */
+    public void replaySession(long sessionId, Consumer<InvestigationEvent> consumer) throws IOException {
+        for (Segment segment : segments) {
+            if (sessionId < segment.minSession || sessionId > segment.maxSession) {
+                continue;
+            }
+            for (int i = 0; i < segment.count; i++) {
+                if (segment.session(i) == sessionId) {
+                    consumer.accept(segment.read(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays every event with a timestamp in [fromMillis, toMillis), in order.
+     */
+    public void replayRange(long fromMillis, long toMillis, Consumer<InvestigationEvent> consumer) throws IOException {
+        for (Segment segment : segments) {
+            if (segment.count == 0 || segment.maxTimestamp < fromMillis || segment.minTimestamp >= toMillis) {
+                continue;
+            }
+            for (int i = segment.firstAtOrAfter(fromMillis); i < segment.count && segment.timestamp(i) < toMillis; i++) {
+                consumer.accept(segment.read(i));
+            }
+        }
+    }
+
+    /**
+     * @return Every event of one session, in order.
+     */
+    public List<InvestigationEvent> readSession(long sessionId) throws IOException {
+        List<InvestigationEvent> events = new ArrayList<>();
+        replaySession(sessionId, events::add);
+        return events;
+    }
+
+    /**
+     * @return The number of events in the log.
+     */
+    public long getEventCount() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.count;
+        }
+        return total;
+    }
+
+    /**
+     * Prints a whole log, or one session of it.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: EventLogReader <logDirectory> [sessionId]");
+            System.exit(1);
+        }
+        EventLogReader reader = open(args[0]);
+        if (args.length == 2) {
+            reader.replaySession(Long.parseLong(args[1]), System.out::println);
+        } else {
+            reader.replayRange(Long.MIN_VALUE, Long.MAX_VALUE, System.out::println);
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package data;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import metrics.Metrics;
+import metrics.Timer;
 import model.Clue;
+import model.EvidenceType;
 
 /**
  * Handles file operations for the game.
+ * Each operation is timed, and failures are counted, in the {@link Metrics} registry.
  */
 public class FileManager {
+    private static final Timer LOAD_CASE = Metrics.timer("file.loadCase");
+    private static final Timer LOAD_CLUES = Metrics.timer("file.loadClues");
+    private static final Timer READ_LINES = Metrics.timer("file.readLinesFromFile");
+    private static final Timer SAVE_LOG = Metrics.timer("file.saveInvestigationLog");
+    private static final Timer SAVE_CLUES = Metrics.timer("file.saveClues");
 
     /**
      * Loads the entire case story from a text file.
@@ -16,6 +27,7 @@ public class FileManager {
      * @return The case story as a String.
      */
     public static String loadCase(String filePath) {
+        long start = Metrics.start();
         StringBuilder caseText = new StringBuilder();
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
             String line;
@@ -23,32 +35,29 @@ public class FileManager {
                 caseText.append(line).append("\n");
             }
         } catch(IOException e) {
-            e.printStackTrace();
+            Metrics.recordError(LOAD_CASE, e);
         }
+        LOAD_CASE.stop(start);
         return caseText.toString();
     }
 
     /**
      * Loads clues from a file.
      * Each line contains fields separated by '|' in the format: description|hint|relatedSuspect
+     * Parsing is done by {@link ClueFileParser}, which memory-maps the file and parses it in parallel.
      * @param filePath The path to the clues file.
      * @return A List of Clue objects.
      */
     public static List<Clue> loadClues(String filePath) {
-        List<Clue> clues = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                String description = parts.length > 0 ? parts[0].trim() : "";
-                String hint = parts.length > 1 ? parts[1].trim() : "";
-                String relatedSuspect = parts.length > 2 ? parts[2].trim() : "";
-                clues.add(new Clue(description, hint, relatedSuspect));
-            }
+        long start = Metrics.start();
+        try {
+            return ClueFileParser.parse(Paths.get(filePath));
         } catch(IOException e) {
-            e.printStackTrace();
+            Metrics.recordError(LOAD_CLUES, e);
+        } finally {
+            LOAD_CLUES.stop(start);
         }
-        return clues;
+        return new ArrayList<>();
     }
 
     /**
@@ -57,6 +66,7 @@ public class FileManager {
      * @return A List of lines.
      */
     public static List<String> readLinesFromFile(String filePath) {
+        long start = Metrics.start();
         List<String> lines = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
             String line;
@@ -64,8 +74,9 @@ public class FileManager {
                 lines.add(line);
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            Metrics.recordError(READ_LINES, e);
         }
+        READ_LINES.stop(start);
         return lines; // returning the list of lines read from the file
     }
 
@@ -75,11 +86,40 @@ public class FileManager {
      * @param log The log entry.
      */
     public static void saveInvestigationLog(String filePath, String log) {
+        long start = Metrics.start();
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath, true))) { // append mode
             bw.write(log);
             bw.newLine();
         } catch(IOException e) {
-            e.printStackTrace();
+            Metrics.recordError(SAVE_LOG, e);
+        }
+        SAVE_LOG.stop(start);
+    }
+
+    /**
+     * Writes clues in the format read by {@link #loadClues(String)}, replacing the file.
+     * @param filePath Path to the clues file.
+     * @param clues The clues to write.
+     */
+    public static void saveClues(String filePath, List<Clue> clues) {
+        long start = Metrics.start();
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filePath), StandardCharsets.UTF_8))) {
+            for (Clue clue : clues) {
+                bw.write(clue.getDescription());
+                bw.write('|');
+                bw.write(clue.getHint());
+                bw.write('|');
+                bw.write(clue.getRelatedSuspect());
+                if (clue.getEvidenceMask() != 0) {
+                    bw.write('|');
+                    bw.write(EvidenceType.describe(clue.getEvidenceMask()));
+                }
+                bw.newLine();
+            }
+        } catch(IOException e) {
+            Metrics.recordError(SAVE_CLUES, e);
         }
+        SAVE_CLUES.stop(start);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import model.CaseDifficulty;
+
+/**
+ * Where a game keeps player profiles, suspect status, session checkpoints and analytics.
+ *
+ * {@link DatabaseManager} stores them in SQLite; {@link InMemoryStore} keeps them in memory
+ * and snapshots them to a file. Implementations are safe to share between sessions.
+ */
+public interface GameStore extends AutoCloseable {
+
+    /**
+     * The location that selects an in-memory store without snapshots. "memory:&lt;file&gt;"
+     * selects one that snapshots to the file.
+     */
+    String MEMORY = "memory";
+
+    /**
+     * Opens the store for a location: {@link #MEMORY}, "memory:&lt;file&gt;", or a JDBC URL,
+     * which opens a write-behind {@link DatabaseManager}.
+     *
+     * @param location The store location.
+     * @return The open store.
+     * @throws IOException If a snapshot file exists but cannot be read.
+     */
+    static GameStore open(String location) throws IOException {
+        if (location.equals(MEMORY)) {
+            return new InMemoryStore();
+        }
+        if (location.startsWith(MEMORY + ":")) {
+            return new InMemoryStore(Paths.get(location.substring(MEMORY.length() + 1)));
+        }
+        return new DatabaseManager(location, true);
+    }
+
+    /**
+     * Inserts a player profile.
+     */
+    void insertPlayer(String name, String progress);
+
+    /**
+     * Updates a suspect’s questioned status, inserting the suspect if no record exists.
+     */
+    void updateSuspect(String name, boolean questioned);
+
+    /**
+     * Inserts a new suspect record. An existing suspect of the same name is left unchanged.
+     */
+    void insertSuspect(String name, boolean questioned);
+
+    /**
+     * Returns a suspect’s questioned status, or false for an unknown suspect.
+     */
+    boolean isSuspectQuestioned(String name);
+
+    /**
+     * Stores a session checkpoint for a player. A full snapshot replaces every earlier
+     * checkpoint of the player.
+     *
+     * @param player The player the session belongs to.
+     * @param full   Whether the data is a full snapshot rather than a delta.
+     * @param data   The encoded checkpoint.
+     */
+    void saveSessionCheckpoint(String player, boolean full, byte[] data);
+
+    /**
+     * Returns a player's session checkpoints, oldest first: a full snapshot and the deltas after it.
+     */
+    List<byte[]> loadSessionCheckpoints(String player);
+
+    /**
+     * Counts a question put to a suspect in the store's {@link InvestigationAnalytics}.
+     */
+    void recordQuestion(String suspect, String question, CaseDifficulty difficulty);
+
+    /**
+     * Counts an accusation and its outcome in the store's {@link InvestigationAnalytics}.
+     */
+    void recordAccusation(String suspect, boolean correct, CaseDifficulty difficulty);
+
+    /**
+     * @return The analytics counters over everything this store has recorded.
+     */
+    InvestigationAnalytics getAnalytics();
+
+    /**
+     * Writes out anything pending and releases the store.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,302 @@
+package data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.Metrics;
+import metrics.Timer;
+import model.CaseDifficulty;
+
+/**
+ * A {@link GameStore} held in concurrent maps, for high-rate simulated sessions and tests.
+ *
+ * Reads never block and writes only contend on the same key. Checkpoint lists are replaced,
+ * never changed, so a load always sees a consistent full snapshot and its deltas.
+ *
+ * With a snapshot file the store loads the file when it opens, writes it again every few
+ * seconds while anything changed, and once more on close. Each snapshot goes to a temporary
+ * file that then replaces the old one, so a crash leaves the previous snapshot intact.
+ * Snapshots and loads are timed in the {@link Metrics} registry; the in-memory operations are not.
+ */
+public class InMemoryStore implements GameStore {
+    private static final int SNAPSHOT_MAGIC = 0x4A444D53; // "JDMS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = 5000;
+
+    private static final Timer SNAPSHOT_TIMER = Metrics.timer("memstore.snapshot");
+    private static final Timer LOAD_TIMER = Metrics.timer("memstore.load");
+
+    // Player profiles in insertion order: name, then progress.
+    private final Queue<String[]> players = new ConcurrentLinkedQueue<>();
+    private final Map<String, Boolean> suspects = new ConcurrentHashMap<>();
+    // Per player: the latest full checkpoint, then the deltas after it.
+    private final ConcurrentHashMap<String, List<byte[]>> checkpoints = new ConcurrentHashMap<>();
+    private final InvestigationAnalytics analytics = new InvestigationAnalytics();
+    // Bumped by every write, so a snapshot can tell whether anything changed.
+    private final AtomicLong modifications = new AtomicLong();
+
+    private final Path snapshotFile;
+    private ScheduledExecutorService snapshotter;
+    // The modification count the last snapshot covered; guarded by this store's lock.
+    private long snapshotModifications;
+
+    /**
+     * Creates an empty store that is never written to disk.
+     */
+    public InMemoryStore() {
+        this.snapshotFile = null;
+    }
+
+    /**
+     * @param snapshotFile The file to load from and snapshot to.
+     */
+    public InMemoryStore(Path snapshotFile) throws IOException {
+        this(snapshotFile, DEFAULT_SNAPSHOT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param snapshotFile   The file to load from and snapshot to.
+     * @param intervalMillis How often changes are snapshotted.
+     */
+    public InMemoryStore(Path snapshotFile, long intervalMillis) throws IOException {
+        this.snapshotFile = snapshotFile;
+        if (Files.exists(snapshotFile)) {
+            load();
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "memory-store-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void insertPlayer(String name, String progress) {
+        players.add(new String[] {name, progress});
+        modifications.incrementAndGet();
+    }
+
+    @Override
+    public void updateSuspect(String name, boolean questioned) {
+        suspects.put(name, questioned);
+        modifications.incrementAndGet();
+    }
+
+    @Override
+    public void insertSuspect(String name, boolean questioned) {
+        if (suspects.putIfAbsent(name, questioned) == null) {
+            modifications.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean isSuspectQuestioned(String name) {
+        Boolean questioned = suspects.get(name);
+        return questioned != null && questioned;
+    }
+
+    @Override
+    public void saveSessionCheckpoint(String player, boolean full, byte[] data) {
+        byte[] copy = data.clone();
+        checkpoints.compute(player, (key, existing) -> {
+            if (full || existing == null) {
+                return Collections.singletonList(copy);
+            }
+            List<byte[]> updated = new ArrayList<>(existing.size() + 1);
+            updated.addAll(existing);
+            updated.add(copy);
+            return Collections.unmodifiableList(updated);
+        });
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * Returns a player's session checkpoints. The arrays are shared with the store and must not be changed.
+     */
+    @Override
+    public List<byte[]> loadSessionCheckpoints(String player) {
+        List<byte[]> saved = checkpoints.get(player);
+        return saved == null ? new ArrayList<>() : new ArrayList<>(saved);
+    }
+
+    @Override
+    public void recordQuestion(String suspect, String question, CaseDifficulty difficulty) {
+        analytics.questionAsked(suspect, question, difficulty);
+        modifications.incrementAndGet();
+    }
+
+    @Override
+    public void recordAccusation(String suspect, boolean correct, CaseDifficulty difficulty) {
+        analytics.accusationMade(suspect, correct, difficulty);
+        modifications.incrementAndGet();
+    }
+
+    @Override
+    public InvestigationAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * @return The number of player profiles stored.
+     */
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    /**
+     * Writes the store to its snapshot file if anything changed since the last snapshot.
+     * Does nothing for a store without a snapshot file.
+     */
+    public synchronized void snapshot() throws IOException {
+        long changes = modifications.get();
+        if (snapshotFile == null || changes == snapshotModifications) {
+            return;
+        }
+        long start = Metrics.start();
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                List<String[]> playerRows = new ArrayList<>(players);
+                out.writeInt(playerRows.size());
+                for (String[] player : playerRows) {
+                    writeString(out, player[0]);
+                    writeNullableString(out, player[1]);
+                }
+                List<Map.Entry<String, Boolean>> suspectRows = new ArrayList<>(suspects.entrySet());
+                out.writeInt(suspectRows.size());
+                for (Map.Entry<String, Boolean> suspect : suspectRows) {
+                    writeString(out, suspect.getKey());
+                    out.writeBoolean(suspect.getValue());
+                }
+                List<Map.Entry<String, List<byte[]>>> checkpointRows = new ArrayList<>(checkpoints.entrySet());
+                out.writeInt(checkpointRows.size());
+                for (Map.Entry<String, List<byte[]>> player : checkpointRows) {
+                    writeString(out, player.getKey());
+                    out.writeInt(player.getValue().size());
+                    for (byte[] data : player.getValue()) {
+                        out.writeInt(data.length);
+                        out.write(data);
+                    }
+                }
+                analytics.writeTo(out);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        // Writes made while the snapshot was taken may be missing from it; they are caught next time.
+        snapshotModifications = changes;
+        SNAPSHOT_TIMER.stop(start);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            Metrics.recordError(SNAPSHOT_TIMER, e);
+        }
+    }
+
+    private void load() throws IOException {
+        long start = Metrics.start();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a store snapshot: " + snapshotFile);
+            }
+            int playerCount = in.readInt();
+            for (int i = 0; i < playerCount; i++) {
+                players.add(new String[] {readString(in), readNullableString(in)});
+            }
+            int suspectCount = in.readInt();
+            for (int i = 0; i < suspectCount; i++) {
+                suspects.put(readString(in), in.readBoolean());
+            }
+            int checkpointPlayers = in.readInt();
+            for (int i = 0; i < checkpointPlayers; i++) {
+                String player = readString(in);
+                List<byte[]> saved = new ArrayList<>();
+                for (int c = in.readInt(); c > 0; c--) {
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    saved.add(data);
+                }
+                checkpoints.put(player, Collections.unmodifiableList(saved));
+            }
+            analytics.readFrom(in);
+        }
+        LOAD_TIMER.stop(start);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes. Unlike {@link DataOutputStream#writeUTF}
+     * this has no 64 KB limit, so a long progress text or typed question cannot fail a snapshot.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt store snapshot: string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    /**
+     * Stops the periodic snapshots and writes a final one.
+     */
+    @Override
+    public void close() {
+        if (snapshotter == null) {
+            return;
+        }
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotQuietly();
+    }
+}
@@ -0,0 +1,319 @@
+package data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import model.CaseDifficulty;
+
+/**
+ * Materialized counters over every investigation a {@link GameStore} has seen: questions per
+ * suspect and per question, accusations per suspect, and accusation outcomes and questions per
+ * {@link CaseDifficulty}.
+ *
+ * Each event bumps a handful of counters, so the counters are always current and a query
+ * reads them instead of scanning history: counts are constant-time, and a ranking only looks
+ * at one counter per suspect or question, however many events produced them. Every counter also
+ * keeps the part not yet written out, which {@link DatabaseManager} adds to its analytics
+ * tables; {@link InMemoryStore} only keeps the totals.
+ */
+public class InvestigationAnalytics {
+    private static final CaseDifficulty[] DIFFICULTIES = CaseDifficulty.values();
+
+    /**
+     * A counter with the increments not yet written out.
+     */
+    static final class Count {
+        final LongAdder total = new LongAdder();
+        final LongAdder pending = new LongAdder();
+
+        void increment() {
+            total.increment();
+            pending.increment();
+        }
+
+        /**
+         * @return The pending increments, which are removed from the counter.
+         */
+        long drainPending() {
+            long drained = pending.sum();
+            pending.add(-drained);
+            return drained;
+        }
+
+        void restore(long value) {
+            total.add(value);
+        }
+    }
+
+    /**
+     * The counters kept per suspect.
+     */
+    static final class SuspectCounts {
+        final Count questions = new Count();
+        final Count accusations = new Count();
+        final Count correct = new Count();
+        // Per question asked of the suspect.
+        final Map<String, Count> questionCounts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * One line of a ranking: a suspect, or a question put to a suspect, and its count.
+     */
+    public static final class Tally {
+        private final String suspect;
+        private final String question;
+        private final long count;
+
+        Tally(String suspect, String question, long count) {
+            this.suspect = suspect;
+            this.question = question;
+            this.count = count;
+        }
+
+        public String getSuspect() {
+            return suspect;
+        }
+
+        /**
+         * @return The question, or null in a ranking of suspects.
+         */
+        public String getQuestion() {
+            return question;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return (question == null ? suspect : suspect + ": " + question) + " (" + count + ")";
+        }
+    }
+
+    private final Map<String, SuspectCounts> suspects = new ConcurrentHashMap<>();
+    // Suspects with pending increments, so writing them out does not visit every suspect.
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final Count[] questionsByDifficulty = new Count[DIFFICULTIES.length];
+    // [difficulty][0] counts incorrect accusations, [difficulty][1] correct ones.
+    private final Count[][] outcomes = new Count[DIFFICULTIES.length][2];
+
+    public InvestigationAnalytics() {
+        for (int d = 0; d < DIFFICULTIES.length; d++) {
+            questionsByDifficulty[d] = new Count();
+            outcomes[d][0] = new Count();
+            outcomes[d][1] = new Count();
+        }
+    }
+
+    SuspectCounts suspect(String name) {
+        return suspects.computeIfAbsent(name, n -> new SuspectCounts());
+    }
+
+    /**
+     * Counts a question put to a suspect.
+     */
+    public void questionAsked(String suspect, String question, CaseDifficulty difficulty) {
+        SuspectCounts counts = suspect(suspect);
+        counts.questions.increment();
+        counts.questionCounts.computeIfAbsent(question, q -> new Count()).increment();
+        questionsByDifficulty[difficulty.ordinal()].increment();
+        dirty.add(suspect);
+    }
+
+    /**
+     * Counts an accusation and its outcome.
+     */
+    public void accusationMade(String suspect, boolean correct, CaseDifficulty difficulty) {
+        SuspectCounts counts = suspect(suspect);
+        counts.accusations.increment();
+        if (correct) {
+            counts.correct.increment();
+        }
+        outcomes[difficulty.ordinal()][correct ? 1 : 0].increment();
+        dirty.add(suspect);
+    }
+
+    public long getQuestionCount(String suspect) {
+        SuspectCounts counts = suspects.get(suspect);
+        return counts == null ? 0 : counts.questions.total.sum();
+    }
+
+    public long getQuestionCount(String suspect, String question) {
+        SuspectCounts counts = suspects.get(suspect);
+        Count count = counts == null ? null : counts.questionCounts.get(question);
+        return count == null ? 0 : count.total.sum();
+    }
+
+    public long getQuestionCount(CaseDifficulty difficulty) {
+        return questionsByDifficulty[difficulty.ordinal()].total.sum();
+    }
+
+    public long getAccusationCount(String suspect) {
+        SuspectCounts counts = suspects.get(suspect);
+        return counts == null ? 0 : counts.accusations.total.sum();
+    }
+
+    public long getCorrectAccusationCount(String suspect) {
+        SuspectCounts counts = suspects.get(suspect);
+        return counts == null ? 0 : counts.correct.total.sum();
+    }
+
+    public long getOutcomeCount(CaseDifficulty difficulty, boolean correct) {
+        return outcomes[difficulty.ordinal()][correct ? 1 : 0].total.sum();
+    }
+
+    /**
+     * @return The share of accusations at a difficulty that were correct, or 0 if there were none.
+     */
+    public double getSuccessRate(CaseDifficulty difficulty) {
+        long correct = getOutcomeCount(difficulty, true);
+        long total = correct + getOutcomeCount(difficulty, false);
+        return total == 0 ? 0 : (double) correct / total;
+    }
+
+    /**
+     * @return The share of all accusations that were correct, or 0 if there were none.
+     */
+    public double getSuccessRate() {
+        long correct = 0;
+        long total = 0;
+        for (CaseDifficulty difficulty : DIFFICULTIES) {
+            correct += getOutcomeCount(difficulty, true);
+            total += getOutcomeCount(difficulty, true) + getOutcomeCount(difficulty, false);
+        }
+        return total == 0 ? 0 : (double) correct / total;
+    }
+
+    /**
+     * @return Up to limit suspects, most questioned first.
+     */
+    public List<Tally> getMostQuestionedSuspects(int limit) {
+        PriorityQueue<Tally> top = new PriorityQueue<>(Comparator.comparingLong(Tally::getCount));
+        for (Map.Entry<String, SuspectCounts> entry : suspects.entrySet()) {
+            offer(top, limit, new Tally(entry.getKey(), null, entry.getValue().questions.total.sum()));
+        }
+        return drain(top);
+    }
+
+    /**
+     * @return Up to limit questions across all suspects, most asked first.
+     */
+    public List<Tally> getMostAskedQuestions(int limit) {
+        PriorityQueue<Tally> top = new PriorityQueue<>(Comparator.comparingLong(Tally::getCount));
+        for (Map.Entry<String, SuspectCounts> suspect : suspects.entrySet()) {
+            for (Map.Entry<String, Count> question : suspect.getValue().questionCounts.entrySet()) {
+                offer(top, limit, new Tally(suspect.getKey(), question.getKey(), question.getValue().total.sum()));
+            }
+        }
+        return drain(top);
+    }
+
+    private static void offer(PriorityQueue<Tally> top, int limit, Tally tally) {
+        if (limit <= 0 || tally.getCount() == 0) {
+            return;
+        }
+        if (top.size() < limit) {
+            top.add(tally);
+        } else if (tally.getCount() > top.peek().getCount()) {
+            top.poll();
+            top.add(tally);
+        }
+    }
+
+    private static List<Tally> drain(PriorityQueue<Tally> top) {
+        List<Tally> ranked = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ranked.add(top.poll());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+
+    /**
+     * Removes and returns the suspects with pending increments. A suspect counted again while
+     * its increments are being written is marked again.
+     */
+    List<String> takeDirtySuspects() {
+        List<String> taken = new ArrayList<>();
+        for (String name : dirty) {
+            if (dirty.remove(name)) {
+                taken.add(name);
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Marks suspects as having pending increments again, e.g. after a failed write.
+     */
+    void markDirty(List<String> names) {
+        dirty.addAll(names);
+    }
+
+    Count getQuestionCounter(CaseDifficulty difficulty) {
+        return questionsByDifficulty[difficulty.ordinal()];
+    }
+
+    Count getOutcomeCounter(CaseDifficulty difficulty, boolean correct) {
+        return outcomes[difficulty.ordinal()][correct ? 1 : 0];
+    }
+
+    /**
+     * Writes the totals, for {@link InMemoryStore} snapshots.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        List<Map.Entry<String, SuspectCounts>> rows = new ArrayList<>(suspects.entrySet());
+        out.writeInt(rows.size());
+        for (Map.Entry<String, SuspectCounts> row : rows) {
+            SuspectCounts counts = row.getValue();
+            InMemoryStore.writeString(out, row.getKey());
+            out.writeLong(counts.questions.total.sum());
+            out.writeLong(counts.accusations.total.sum());
+            out.writeLong(counts.correct.total.sum());
+            List<Map.Entry<String, Count>> questions = new ArrayList<>(counts.questionCounts.entrySet());
+            out.writeInt(questions.size());
+            for (Map.Entry<String, Count> question : questions) {
+                InMemoryStore.writeString(out, question.getKey());
+                out.writeLong(question.getValue().total.sum());
+            }
+        }
+        out.writeInt(DIFFICULTIES.length);
+        for (CaseDifficulty difficulty : DIFFICULTIES) {
+            InMemoryStore.writeString(out, difficulty.name());
+            out.writeLong(getQuestionCount(difficulty));
+            out.writeLong(getOutcomeCount(difficulty, false));
+            out.writeLong(getOutcomeCount(difficulty, true));
+        }
+    }
+
+    /**
+     * Adds totals written by {@link #writeTo}.
+     */
+    void readFrom(DataInputStream in) throws IOException {
+        for (int s = in.readInt(); s > 0; s--) {
+            SuspectCounts counts = suspect(InMemoryStore.readString(in));
+            counts.questions.restore(in.readLong());
+            counts.accusations.restore(in.readLong());
+            counts.correct.restore(in.readLong());
+            for (int q = in.readInt(); q > 0; q--) {
+                counts.questionCounts.computeIfAbsent(InMemoryStore.readString(in), k -> new Count()).restore(in.readLong());
+            }
+        }
+        for (int d = in.readInt(); d > 0; d--) {
+            CaseDifficulty difficulty = CaseDifficulty.valueOf(InMemoryStore.readString(in));
+            getQuestionCounter(difficulty).restore(in.readLong());
+            getOutcomeCounter(difficulty, false).restore(in.readLong());
+            getOutcomeCounter(difficulty, true).restore(in.readLong());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package data;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One typed entry in the {@link EventLog}.
+ *
+ * Every event has a type, a timestamp and the session it belongs to. Its other fields are
+ * strings whose meaning depends on the type, as listed on each {@link Type}.
+ */
+public final class InvestigationEvent {
+
+    /**
+     * The kinds of event. The ordinal is stored in the log, so new types must be added at the end.
+     */
+    public enum Type {
+        // Fields: case title.
+        CASE_STARTED,
+        // Fields: clue description, related suspect.
+        CLUE_DISCOVERED,
+        // Fields: suspect, dialogue context, question.
+        QUESTION_ASKED,
+        // Fields: suspect, "correct" or "incorrect".
+        ACCUSATION_MADE
+    }
+
+    private final Type type;
+    private final long timestamp;
+    private final long sessionId;
+    private final String[] fields;
+
+    /**
+     * @param type      The kind of event.
+     * @param timestamp When it happened, in milliseconds since the epoch.
+     * @param sessionId The session it belongs to.
+     * @param fields    The type-specific fields.
+     */
+    public InvestigationEvent(Type type, long timestamp, long sessionId, String... fields) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.sessionId = sessionId;
+        this.fields = fields.clone();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * @return The field at the index, or an empty string if the event has fewer fields.
+     */
+    public String getField(int index) {
+        return index < fields.length ? fields[index] : "";
+    }
+
+    public List<String> getFields() {
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    int getFieldCount() {
+        return fields.length;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + Instant.ofEpochMilli(timestamp) + "] session " + sessionId + " " + type + ": "
+                + String.join(" | ", fields);
+    }
+}
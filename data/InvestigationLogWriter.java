@@ -0,0 +1,256 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.Metrics;
+
+/**
+ * Appends investigation log entries from a background thread.
+ * Entries are queued, grouped into batches and written through a single open channel,
+ * so callers (such as the Swing event thread) never wait on the file system.
+ */
+public class InvestigationLogWriter implements AutoCloseable {
+
+    /**
+     * Controls how often written data is forced to disk.
+     */
+    public enum FlushPolicy {
+        // Force after every entry.
+        PER_ENTRY,
+        // Force once after every batch.
+        PER_BATCH,
+        // Force at most once per flush interval.
+        TIMED
+    }
+
+    private static final int MAX_BATCH = 256;
+
+    private final FileChannel channel;
+    private final BlockingQueue<String> queue;
+    private final FlushPolicy flushPolicy;
+    private final long flushIntervalNanos;
+    private final Thread writerThread;
+    private volatile boolean closed;
+    // Appends that passed the closed check and may not be queued yet; the writer waits for them.
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Counters exposed for monitoring.
+    private final AtomicLong entriesWritten = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong rejectedEntries = new AtomicLong();
+
+    private long lastForceNanos = System.nanoTime();
+
+    /**
+     * Creates a writer with a per-batch flush policy.
+     * @param filePath Path to the investigation log file.
+     */
+    public InvestigationLogWriter(String filePath) throws IOException {
+        this(filePath, 1024, FlushPolicy.PER_BATCH, 1000);
+    }
+
+    /**
+     * Creates a writer appending to the given file.
+     * @param filePath Path to the investigation log file.
+     * @param capacity Maximum number of entries waiting to be written.
+     * @param flushPolicy When data is forced to disk.
+     * @param flushIntervalMillis Interval used by the TIMED policy.
+     */
+    public InvestigationLogWriter(String filePath, int capacity, FlushPolicy flushPolicy,
+                                  long flushIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushPolicy = flushPolicy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.writerThread = new Thread(this::run, "investigation-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues an entry, blocking while the queue is full (backpressure).
+     * @param log The log entry.
+     */
+    public void append(String log) {
+        inFlight.incrementAndGet();
+        try {
+            if (closed) {
+                rejectedEntries.incrementAndGet();
+                return;
+            }
+            queue.put(log);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedEntries.incrementAndGet();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues an entry, waiting at most the given time for space.
+     * @return true if the entry was accepted.
+     */
+    public boolean tryAppend(String log, long timeout, TimeUnit unit) {
+        inFlight.incrementAndGet();
+        try {
+            if (!closed && queue.offer(log, timeout, unit)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        rejectedEntries.incrementAndGet();
+        return false;
+    }
+
+    private void run() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        StringBuilder sb = new StringBuilder();
+        // An append counts itself in flight before it checks closed, and stops counting only once
+        // its entry is queued, so reading closed, then inFlight, then the queue misses no entry.
+        while (!closed || inFlight.get() > 0 || !queue.isEmpty()) {
+            try {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    forceIfDue();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch, sb);
+            } catch (InterruptedException e) {
+                // Keep draining; close() signals shutdown through the closed flag.
+            } catch (IOException e) {
+                Metrics.recordError("log.write", e);
+            } finally {
+                batch.clear();
+                sb.setLength(0);
+            }
+        }
+    }
+
+    private void writeBatch(List<String> batch, StringBuilder sb) throws IOException {
+        if (flushPolicy == FlushPolicy.PER_ENTRY) {
+            for (String entry : batch) {
+                sb.setLength(0);
+                sb.append(entry).append(System.lineSeparator());
+                write(sb);
+                force();
+            }
+        } else {
+            for (String entry : batch) {
+                sb.append(entry).append(System.lineSeparator());
+            }
+            write(sb);
+            if (flushPolicy == FlushPolicy.PER_BATCH) {
+                force();
+            } else {
+                forceIfDue();
+            }
+        }
+        entriesWritten.addAndGet(batch.size());
+        batchesWritten.incrementAndGet();
+    }
+
+    private void write(CharSequence text) throws IOException {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void forceIfDue() throws IOException {
+        if (flushPolicy == FlushPolicy.TIMED && System.nanoTime() - lastForceNanos >= flushIntervalNanos) {
+            force();
+        }
+    }
+
+    private void force() throws IOException {
+        long start = System.nanoTime();
+        channel.force(false);
+        long elapsed = System.nanoTime() - start;
+        lastForceNanos = start + elapsed;
+        flushCount.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * Stops accepting entries, writes everything still queued and closes the file.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        // The writer is not interrupted: an interrupt would close the FileChannel mid-write.
+        closed = true;
+        try {
+            writerThread.join();
+            channel.force(false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Metrics.recordError("log.close", e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Metrics.recordError("log.close", e);
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getEntriesWritten() {
+        return entriesWritten.get();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public long getRejectedEntries() {
+        return rejectedEntries.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * @return The average time spent forcing data to disk, in microseconds.
+     */
+    public double getAverageFlushMicros() {
+        long count = flushCount.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / 1000.0 / count;
+    }
+
+    /**
+     * @return The longest time spent forcing data to disk, in microseconds.
+     */
+    public double getMaxFlushMicros() {
+        return maxFlushNanos.get() / 1000.0;
+    }
+}
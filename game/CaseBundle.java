@@ -0,0 +1,223 @@
+package game;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import model.CaseDifficulty;
+import model.Clue;
+import model.Suspect;
+
+/**
+ * A compiled case bundle, read through a memory mapping.
+ *
+ * Opening a bundle only maps the file and checks its header; strings are decoded from the
+ * string table on first use and then cached, so the cost of {@link #open(Path)} does not grow
+ * with the size of the case. Bundles are written by {@link CaseBundleCompiler}.
+ *
+ * Layout (all values are big-endian ints; strings are referenced by their table index):
+ * <pre>
+ * header       magic, version, stringCount, storyId, culpritId, solutionId,
+ *              clueCount, clueTableOffset, suspectTableOffset, stringIndexOffset, stringDataOffset,
+ *              titleId, difficulty (a {@link CaseDifficulty} ordinal, or -1), suspectCount,
+ *              ruleCount, ruleTableOffset
+ * clue table   clueCount x (descriptionId, hintId, relatedSuspectId, evidenceMask)
+ * suspects     suspectCount x (nameId, contextCount,
+ *              per context: contextId, questionCount, questionCount x (questionId, responseId))
+ * rules        ruleCount x lineId: the case's {@link UnlockRules}, one rule per line
+ * string index stringCount + 1 byte offsets into the string data
+ * string data  UTF-8 bytes of every distinct string, stored once
+ * </pre>
+ * A bundle of any other version is rejected.
+ */
+public final class CaseBundle {
+    static final int MAGIC = 0x4A444342; // "JDCB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final int stringCount;
+    private final int storyId;
+    private final int culpritId;
+    private final int solutionId;
+    private final int clueCount;
+    private final int clueTableOffset;
+    private final int suspectTableOffset;
+    private final int stringIndexOffset;
+    private final int stringDataOffset;
+    private final int titleId;
+    // -1 for a case made for no particular difficulty.
+    private final int difficulty;
+    private final int suspectCount;
+    private final int ruleCount;
+    private final int ruleTableOffset;
+    // Decoded strings; races only ever store equal values.
+    private final String[] strings;
+
+    private CaseBundle(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a case bundle");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported case bundle version " + buffer.getInt(4));
+        }
+        this.stringCount = buffer.getInt(8);
+        this.storyId = buffer.getInt(12);
+        this.culpritId = buffer.getInt(16);
+        this.solutionId = buffer.getInt(20);
+        this.clueCount = buffer.getInt(24);
+        this.clueTableOffset = buffer.getInt(28);
+        this.suspectTableOffset = buffer.getInt(32);
+        this.stringIndexOffset = buffer.getInt(36);
+        this.stringDataOffset = buffer.getInt(40);
+        this.titleId = buffer.getInt(44);
+        this.difficulty = buffer.getInt(48);
+        this.suspectCount = buffer.getInt(52);
+        this.ruleCount = buffer.getInt(56);
+        this.ruleTableOffset = buffer.getInt(60);
+        this.strings = new String[stringCount];
+    }
+
+    /**
+     * Maps a bundle file.
+     *
+     * @param bundleFile The bundle to open.
+     * @return The opened bundle.
+     */
+    public static CaseBundle open(Path bundleFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(bundleFile, StandardOpenOption.READ)) {
+            return new CaseBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns a string from the string table, decoding it on first use.
+     */
+    String getString(int id) {
+        String s = strings[id];
+        if (s == null) {
+            int start = buffer.getInt(stringIndexOffset + id * Integer.BYTES);
+            int end = buffer.getInt(stringIndexOffset + (id + 1) * Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringDataOffset + start, bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = s;
+        }
+        return s;
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    public String getCaseStory() {
+        return getString(storyId);
+    }
+
+    public String getCulprit() {
+        return getString(culpritId);
+    }
+
+    public String getSolution() {
+        return getString(solutionId);
+    }
+
+    public int getClueCount() {
+        return clueCount;
+    }
+
+    public String getTitle() {
+        return getString(titleId);
+    }
+
+    /**
+     * @return The difficulty the case was made for, or null if the bundle does not record it.
+     */
+    public CaseDifficulty getDifficulty() {
+        CaseDifficulty[] levels = CaseDifficulty.values();
+        return difficulty >= 0 && difficulty < levels.length ? levels[difficulty] : null;
+    }
+
+    /**
+     * @return The number of suspects, read without decoding them.
+     */
+    public int getSuspectCount() {
+        return suspectCount;
+    }
+
+    /**
+     * @return The size of the bundle file in bytes.
+     */
+    public int getSize() {
+        return buffer.limit();
+    }
+
+    /**
+     * Reads one clue from the clue table.
+     */
+    public Clue getClue(int index) {
+        int offset = clueTableOffset + index * 4 * Integer.BYTES;
+        return new Clue(getString(buffer.getInt(offset)),
+                getString(buffer.getInt(offset + 4)),
+                getString(buffer.getInt(offset + 8)),
+                buffer.getInt(offset + 12));
+    }
+
+    /**
+     * Reads every suspect with its dialogue tree.
+     */
+    public Map<String, Suspect> getSuspects() {
+        Map<String, Suspect> suspects = new LinkedHashMap<>();
+        int pos = suspectTableOffset;
+        for (int i = 0; i < suspectCount; i++) {
+            String name = getString(buffer.getInt(pos));
+            int contextCount = buffer.getInt(pos + 4);
+            pos += 8;
+            Map<String, Map<String, String>> dialogue = new LinkedHashMap<>();
+            for (int c = 0; c < contextCount; c++) {
+                String context = getString(buffer.getInt(pos));
+                int questionCount = buffer.getInt(pos + 4);
+                pos += 8;
+                Map<String, String> branch = new LinkedHashMap<>();
+                for (int q = 0; q < questionCount; q++) {
+                    branch.put(getString(buffer.getInt(pos)), getString(buffer.getInt(pos + 4)));
+                    pos += 8;
+                }
+                dialogue.put(context, branch);
+            }
+            suspects.put(name, new Suspect(name, dialogue));
+        }
+        return suspects;
+    }
+
+    /**
+     * @return The lines of the case's unlock rules; empty if nothing is locked.
+     */
+    public List<String> getUnlockRules() {
+        List<String> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            rules.add(getString(buffer.getInt(ruleTableOffset + i * Integer.BYTES)));
+        }
+        return rules;
+    }
+
+    /**
+     * Materializes the whole bundle as a case snapshot.
+     *
+     * @throws IllegalArgumentException If an unlock rule does not fit the case.
+     */
+    public CaseSnapshot toSnapshot() {
+        List<Clue> clues = new ArrayList<>(clueCount);
+        for (int i = 0; i < clueCount; i++) {
+            clues.add(getClue(i));
+        }
+        return new CaseSnapshot(getCaseStory(), clues, getSuspects(), getCulprit(), getSolution(), getUnlockRules());
+    }
+}
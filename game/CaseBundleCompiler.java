@@ -0,0 +1,206 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.CaseDifficulty;
+import model.Clue;
+import model.Suspect;
+
+/**
+ * Compiles a case into the binary format read by {@link CaseBundle}.
+ *
+ * Usage: {@code java game.CaseBundleCompiler case1.txt clues.txt case1.bundle [difficulty] [unlocks.txt]}
+ */
+public class CaseBundleCompiler {
+    // Distinct strings in first-seen order, and their table ids.
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private static final int MAX_TITLE_LENGTH = 60;
+
+    private int intern(String s) {
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            ids.put(s, id);
+        }
+        return id;
+    }
+
+    /**
+     * Writes a snapshot to a bundle file, titled by the first line of its story, without a difficulty.
+     *
+     * @param snapshot   The case to compile.
+     * @param bundleFile The file to write.
+     */
+    public static void compile(CaseSnapshot snapshot, Path bundleFile) throws IOException {
+        compile(snapshot, titleOf(snapshot.getCaseStory()), null, bundleFile);
+    }
+
+    /**
+     * Writes a snapshot to a bundle file with the metadata a {@link CaseCatalog} lists.
+     *
+     * @param snapshot   The case to compile.
+     * @param title      The case's title.
+     * @param difficulty The difficulty the case was made for, or null.
+     * @param bundleFile The file to write.
+     */
+    public static void compile(CaseSnapshot snapshot, String title, CaseDifficulty difficulty, Path bundleFile)
+            throws IOException {
+        Files.write(bundleFile, new CaseBundleCompiler().toBytes(snapshot, title, difficulty));
+    }
+
+    /**
+     * @return The first non-blank line of a story, cut to a readable length.
+     */
+    static String titleOf(String story) {
+        for (String line : story.split("\n")) {
+            String title = line.trim();
+            if (!title.isEmpty()) {
+                return title.length() <= MAX_TITLE_LENGTH ? title : title.substring(0, MAX_TITLE_LENGTH - 3) + "...";
+            }
+        }
+        return "Untitled case";
+    }
+
+    private byte[] toBytes(CaseSnapshot snapshot, String title, CaseDifficulty difficulty) throws IOException {
+        int storyId = intern(snapshot.getCaseStory());
+        int culpritId = intern(snapshot.getCulprit());
+        int solutionId = intern(snapshot.getSolution());
+        int titleId = intern(title);
+
+        List<Clue> clues = snapshot.getClues();
+        int[] clueTable = new int[clues.size() * 4];
+        for (int i = 0; i < clues.size(); i++) {
+            Clue clue = clues.get(i);
+            clueTable[i * 4] = intern(clue.getDescription());
+            clueTable[i * 4 + 1] = intern(clue.getHint());
+            clueTable[i * 4 + 2] = intern(clue.getRelatedSuspect());
+            clueTable[i * 4 + 3] = clue.getEvidenceMask();
+        }
+
+        ByteArrayOutputStream suspectBytes = new ByteArrayOutputStream();
+        DataOutputStream suspectOut = new DataOutputStream(suspectBytes);
+        for (Suspect suspect : snapshot.getSuspects()) {
+            suspectOut.writeInt(intern(suspect.getName()));
+            suspectOut.writeInt(suspect.getContexts().size());
+            for (String context : suspect.getContexts()) {
+                Map<String, String> branch = suspect.getDialogueOptions(context);
+                suspectOut.writeInt(intern(context));
+                suspectOut.writeInt(branch.size());
+                for (Map.Entry<String, String> entry : branch.entrySet()) {
+                    suspectOut.writeInt(intern(entry.getKey()));
+                    suspectOut.writeInt(intern(entry.getValue()));
+                }
+            }
+        }
+        suspectOut.flush();
+
+        // Comments and blank lines are left out; the rules were checked when the snapshot was built.
+        List<Integer> ruleTable = new ArrayList<>();
+        for (String line : snapshot.getUnlockRuleLines()) {
+            String rule = line.trim();
+            if (!rule.isEmpty() && !rule.startsWith("#")) {
+                ruleTable.add(intern(rule));
+            }
+        }
+
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        for (String s : strings) {
+            encoded.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int clueTableOffset = CaseBundle.HEADER_SIZE;
+        int suspectTableOffset = clueTableOffset + clueTable.length * Integer.BYTES;
+        int ruleTableOffset = suspectTableOffset + suspectBytes.size();
+        int stringIndexOffset = ruleTableOffset + ruleTable.size() * Integer.BYTES;
+        int stringDataOffset = stringIndexOffset + (strings.size() + 1) * Integer.BYTES;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(CaseBundle.MAGIC);
+        out.writeInt(CaseBundle.VERSION);
+        out.writeInt(strings.size());
+        out.writeInt(storyId);
+        out.writeInt(culpritId);
+        out.writeInt(solutionId);
+        out.writeInt(clues.size());
+        out.writeInt(clueTableOffset);
+        out.writeInt(suspectTableOffset);
+        out.writeInt(stringIndexOffset);
+        out.writeInt(stringDataOffset);
+        out.writeInt(titleId);
+        out.writeInt(difficulty == null ? -1 : difficulty.ordinal());
+        out.writeInt(snapshot.getSuspects().size());
+        out.writeInt(ruleTable.size());
+        out.writeInt(ruleTableOffset);
+        for (int id : clueTable) {
+            out.writeInt(id);
+        }
+        suspectBytes.writeTo(out);
+        for (int id : ruleTable) {
+            out.writeInt(id);
+        }
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] s : encoded) {
+            offset += s.length;
+            out.writeInt(offset);
+        }
+        for (byte[] s : encoded) {
+            out.write(s);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Compiles the case text sources into a bundle. The optional arguments are the difficulty the
+     * case is made for and its unlock rules file, in that order; a rule that does not fit the
+     * case stops the compilation.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length > 5) {
+            System.err.println("Usage: CaseBundleCompiler <caseFile> <cluesFile> <bundleFile> [EASY|MEDIUM|HARD] [unlocksFile]");
+            System.exit(1);
+        }
+        CaseSnapshot snapshot = CaseSnapshot.load(args[0], args[1]);
+        CaseDifficulty difficulty = null;
+        int next = 3;
+        if (args.length > next && isDifficulty(args[next])) {
+            difficulty = CaseDifficulty.valueOf(args[next++].toUpperCase(Locale.ROOT));
+        }
+        if (args.length > next) {
+            List<String> rules = Files.readAllLines(Paths.get(args[next]), StandardCharsets.UTF_8);
+            try {
+                snapshot = new CaseSnapshot(snapshot.getCaseStory(), snapshot.getClues(), snapshot.getSuspectMap(),
+                        snapshot.getCulprit(), snapshot.getSolution(), rules);
+            } catch (IllegalArgumentException e) {
+                System.err.println(args[next] + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        compile(snapshot, titleOf(snapshot.getCaseStory()), difficulty, Paths.get(args[2]));
+        System.out.println("Wrote " + args[2]);
+    }
+
+    private static boolean isDifficulty(String arg) {
+        for (CaseDifficulty level : CaseDifficulty.values()) {
+            if (level.name().equalsIgnoreCase(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
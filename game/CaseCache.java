@@ -0,0 +1,242 @@
+package game;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import metrics.Counter;
+import metrics.Metrics;
+import metrics.Timer;
+import model.Clue;
+import model.DialogueGraph;
+import model.Suspect;
+
+/**
+ * Loads a {@link CaseCatalog}'s cases on demand and keeps the recently played ones in memory.
+ *
+ * The cache is bounded by an estimate of the memory its cases take, not by their number, so a
+ * few large cases and many small ones fit the same budget; the least recently used cases are
+ * evicted first. Every time a case is fetched, the catalog's guess of the next one is loaded in
+ * the background, so moving through the catalog usually finds the next case already in memory.
+ * A case asked for while it is still loading is waited for rather than loaded twice.
+ *
+ * Hits, misses and evictions are counted in the {@link Metrics} registry, and loads are timed.
+ */
+public final class CaseCache implements AutoCloseable {
+    private static final Timer LOAD_TIMER = Metrics.timer("catalog.load");
+    private static final Counter HITS = Metrics.counter("catalog.cache.hits");
+    private static final Counter MISSES = Metrics.counter("catalog.cache.misses");
+    private static final Counter EVICTIONS = Metrics.counter("catalog.cache.evictions");
+
+    private final CaseCatalog catalog;
+    private final long maxBytes;
+    // Least recently used first; guarded by this cache's lock, like the fields below.
+    private final LinkedHashMap<String, Cached> cases = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<CaseSnapshot>> loading = new HashMap<>();
+    private long totalBytes;
+    private final ExecutorService prefetcher;
+
+    private static final class Cached {
+        final CaseSnapshot snapshot;
+        final long bytes;
+
+        Cached(CaseSnapshot snapshot, long bytes) {
+            this.snapshot = snapshot;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * @param catalog  The cases to serve.
+     * @param maxBytes The memory the cached cases may take, by {@link #estimateBytes}.
+     */
+    public CaseCache(CaseCatalog catalog, long maxBytes) {
+        this.catalog = catalog;
+        this.maxBytes = maxBytes;
+        this.prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "case-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CaseCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns a case, loading it if it is not cached, and starts loading the likely next one.
+     *
+     * @param id The case's catalog id.
+     * @return The case.
+     * @throws IllegalArgumentException If the catalog has no such case.
+     * @throws IOException              If the case's bundle cannot be read.
+     */
+    public CaseSnapshot get(String id) throws IOException {
+        CaseCatalog.Entry entry = catalog.get(id);
+        if (entry == null) {
+            throw new IllegalArgumentException("No case '" + id + "' in " + catalog.getDirectory());
+        }
+        Cached cached;
+        CompletableFuture<CaseSnapshot> pending;
+        boolean loadHere = false;
+        synchronized (this) {
+            cached = cases.get(id);
+            pending = cached == null ? loading.get(id) : null;
+            if (cached == null && pending == null) {
+                pending = new CompletableFuture<>();
+                loading.put(id, pending);
+                loadHere = true;
+            }
+        }
+        if (cached != null) {
+            HITS.increment();
+            prefetch(catalog.next(id));
+            return cached.snapshot;
+        }
+        // A case already being prefetched only costs the rest of its load.
+        (loadHere ? MISSES : HITS).increment();
+        if (loadHere) {
+            load(entry, pending);
+        }
+        prefetch(catalog.next(id));
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts loading a case in the background unless it is cached or already loading.
+     *
+     * @param entry The case, or null to do nothing.
+     */
+    public void prefetch(CaseCatalog.Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        CompletableFuture<CaseSnapshot> pending = new CompletableFuture<>();
+        synchronized (this) {
+            if (cases.containsKey(entry.getId()) || loading.containsKey(entry.getId())) {
+                return;
+            }
+            loading.put(entry.getId(), pending);
+        }
+        try {
+            prefetcher.execute(() -> load(entry, pending));
+        } catch (RejectedExecutionException e) {
+            // Closed; the case is loaded when it is asked for.
+            synchronized (this) {
+                loading.remove(entry.getId());
+            }
+        }
+    }
+
+    private void load(CaseCatalog.Entry entry, CompletableFuture<CaseSnapshot> pending) {
+        long start = Metrics.start();
+        try {
+            CaseSnapshot snapshot = CaseBundle.open(entry.getBundleFile()).toSnapshot();
+            LOAD_TIMER.stop(start);
+            long bytes = estimateBytes(snapshot);
+            synchronized (this) {
+                put(entry.getId(), snapshot, bytes);
+                loading.remove(entry.getId());
+            }
+            pending.complete(snapshot);
+        } catch (IOException | RuntimeException e) {
+            Metrics.recordError(LOAD_TIMER, e);
+            synchronized (this) {
+                loading.remove(entry.getId());
+            }
+            pending.completeExceptionally(e);
+        }
+    }
+
+    // Called with the lock held.
+    private void put(String id, CaseSnapshot snapshot, long bytes) {
+        if (bytes > maxBytes) {
+            // A case larger than the whole budget is handed out but not kept.
+            return;
+        }
+        cases.put(id, new Cached(snapshot, bytes));
+        totalBytes += bytes;
+        Iterator<Cached> eldest = cases.values().iterator();
+        while (totalBytes > maxBytes) {
+            totalBytes -= eldest.next().bytes;
+            eldest.remove();
+            EVICTIONS.increment();
+        }
+    }
+
+    public synchronized boolean isCached(String id) {
+        return cases.containsKey(id);
+    }
+
+    /**
+     * @return The number of cached cases.
+     */
+    public synchronized int size() {
+        return cases.size();
+    }
+
+    /**
+     * @return The estimated memory the cached cases take.
+     */
+    public synchronized long getCachedBytes() {
+        return totalBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Estimates the heap a loaded case takes: its text, two bytes per character with a string's
+     * header, the per-clue and per-question objects, the clue and question indexes, which grow
+     * with the length of the text they index, and a fixed cost for the rest of the snapshot.
+     * Close to, if slightly under, the measured heap of generated cases, and cheap enough to
+     * compute for every load.
+     */
+    static long estimateBytes(CaseSnapshot snapshot) {
+        long bytes = 16384 + text(snapshot.getCaseStory()) + text(snapshot.getSolution());
+        for (Clue clue : snapshot.getClues()) {
+            long chars = clue.getDescription().length() + clue.getHint().length();
+            // The clue, its strings, and the clue index's postings.
+            bytes += 96 + 3 * chars + text(clue.getRelatedSuspect());
+        }
+        for (Suspect suspect : snapshot.getSuspects()) {
+            DialogueGraph graph = suspect.getDialogueGraph();
+            bytes += 256 + text(suspect.getName());
+            for (int c = 0; c < graph.getContextCount(); c++) {
+                bytes += 128 + text(graph.contextName(c));
+            }
+            for (int q = 0; q < graph.getQuestionCount(); q++) {
+                // The tree and graph entries, and the question matcher's trigrams and postings.
+                bytes += 224 + text(graph.response(q)) + 14L * graph.question(q).length();
+            }
+        }
+        return bytes;
+    }
+
+    private static long text(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    /**
+     * Stops prefetching; loads already started still finish.
+     */
+    @Override
+    public void close() {
+        prefetcher.shutdown();
+    }
+}
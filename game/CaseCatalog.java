@@ -0,0 +1,182 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import metrics.Metrics;
+import metrics.Timer;
+import model.CaseDifficulty;
+
+/**
+ * The cases in a directory of bundles, listed by their metadata only.
+ *
+ * Scanning reads each bundle's header and title, never its clues or suspects, so a catalog of
+ * hundreds of cases is built in a fraction of a second and takes a few hundred bytes per case.
+ * The cases themselves are loaded on demand through a {@link CaseCache}. Bundles are listed in
+ * file name order; a bundle that cannot be read is reported and left out.
+ */
+public final class CaseCatalog {
+    private static final Timer SCAN_TIMER = Metrics.timer("catalog.scan");
+
+    private final Path directory;
+    private final List<Entry> entries;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    /**
+     * One case of the catalog.
+     */
+    public static final class Entry {
+        private final String id;
+        private final Path bundleFile;
+        private final String title;
+        private final CaseDifficulty difficulty;
+        private final int suspectCount;
+        private final int clueCount;
+        private final int size;
+
+        Entry(String id, Path bundleFile, CaseBundle bundle) {
+            this.id = id;
+            this.bundleFile = bundleFile;
+            this.title = bundle.getTitle();
+            this.difficulty = bundle.getDifficulty();
+            this.suspectCount = bundle.getSuspectCount();
+            this.clueCount = bundle.getClueCount();
+            this.size = bundle.getSize();
+        }
+
+        /**
+         * @return The bundle's file name without the .bundle extension.
+         */
+        public String getId() {
+            return id;
+        }
+
+        public Path getBundleFile() {
+            return bundleFile;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * @return The difficulty the case was made for, or null if its bundle does not record it.
+         */
+        public CaseDifficulty getDifficulty() {
+            return difficulty;
+        }
+
+        public int getSuspectCount() {
+            return suspectCount;
+        }
+
+        public int getClueCount() {
+            return clueCount;
+        }
+
+        /**
+         * @return The bundle's size in bytes.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return title + " (" + (difficulty == null ? "" : difficulty.name().toLowerCase(Locale.ROOT) + ", ")
+                    + suspectCount + " suspects)";
+        }
+    }
+
+    private CaseCatalog(Path directory, List<Entry> entries) {
+        this.directory = directory;
+        this.entries = Collections.unmodifiableList(entries);
+        for (int i = 0; i < entries.size(); i++) {
+            positions.put(entries.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * Lists the *.bundle files of a directory.
+     *
+     * @param directory The directory to scan; a missing directory gives an empty catalog.
+     * @return The catalog.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static CaseCatalog scan(Path directory) throws IOException {
+        long start = Metrics.start();
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.bundle")) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        List<Entry> entries = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                entries.add(new Entry(name.substring(0, name.length() - ".bundle".length()), file, CaseBundle.open(file)));
+            } catch (IOException | RuntimeException e) {
+                Metrics.recordError(SCAN_TIMER, e);
+            }
+        }
+        SCAN_TIMER.stop(start);
+        return new CaseCatalog(directory, entries);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return Every case, in file name order.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The case with the id, or null if there is none.
+     */
+    public Entry get(String id) {
+        Integer position = positions.get(id);
+        return position == null ? null : entries.get(position);
+    }
+
+    /**
+     * @return The cases made for a difficulty, in catalog order.
+     */
+    public List<Entry> find(CaseDifficulty difficulty) {
+        List<Entry> found = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.getDifficulty() == difficulty) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Guesses the case a player will pick after this one: the next one in the catalog.
+     *
+     * @return The next case, or null after the last one or for an unknown id.
+     */
+    public Entry next(String id) {
+        Integer position = positions.get(id);
+        return position == null || position + 1 >= entries.size() ? null : entries.get(position + 1);
+    }
+}
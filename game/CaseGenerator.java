@@ -0,0 +1,403 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import data.FileManager;
+import model.CaseDifficulty;
+import model.Clue;
+import model.EvidenceType;
+import model.Suspect;
+
+/**
+ * Generates random cases at a chosen difficulty: a narrative, clues with evidence, and a
+ * dialogue tree per suspect.
+ *
+ * The culprit gets motive, means and opportunity; every other suspect gets at most two of them,
+ * and harder cases spread the evidence over more clues, mix in clues that prove nothing, give
+ * fewer hints and have deeper dialogue. Each case is checked by {@link CaseSolver} before it is
+ * returned, so it always has exactly one consistent culprit. A seed always produces the same case.
+ *
+ * Usage: {@code java game.CaseGenerator <EASY|MEDIUM|HARD> <count> <outputDir> [suspects]}
+ * writes each case as a bundle plus its clues as a text file.
+ */
+public class CaseGenerator {
+    private static final int MAX_ATTEMPTS = 10;
+
+    private static final String[] FIRST_NAMES = {
+            "Nomsa", "Sipho", "Thando", "Lerato", "Bongani", "Zanele", "Themba", "Ayanda",
+            "Kagiso", "Palesa", "Mandla", "Naledi", "Tshepo", "Busisiwe", "Lwazi", "Refilwe"
+    };
+    private static final String[] SURNAMES = {
+            "Khumalo", "Dlamini", "Mokoena", "Nkosi", "Ndlovu", "Mahlangu", "Zulu", "Molefe"
+    };
+    private static final String[] ITEMS = {
+            "scones", "recipe book", "heirloom teapot", "wedding cake", "silver spoons", "choir trophy"
+    };
+    private static final String[] EVENTS = {
+            "Christmas Luncheon", "birthday braai", "wedding reception", "family reunion", "church bazaar"
+    };
+    private static final String[] PLACES = {
+            "pantry", "kitchen", "garden shed", "study", "dining room", "garage"
+    };
+
+    // Clue templates: %1$s is the suspect, %2$s the missing item, %3$s the place it was kept.
+    private static final String[][] EVIDENCE_CLUES = {
+            { // MOTIVE
+                    "%1$s was overheard complaining that nobody appreciated them, days before the %2$s vanished.",
+                    "Letters found in the %3$s show that %1$s owed the host a great deal of money.",
+                    "%1$s argued bitterly with the host about the %2$s that morning."
+            },
+            { // MEANS
+                    "%1$s is one of the few people with a key to the %3$s.",
+                    "A spare key to the %3$s was found in %1$s's coat pocket.",
+                    "%1$s knew the combination of the lock on the %3$s."
+            },
+            { // OPPORTUNITY
+                    "A witness saw %1$s near the %3$s shortly before the %2$s went missing.",
+                    "%1$s left the table alone for twenty minutes around the time the %2$s disappeared.",
+                    "Nobody can say where %1$s was when the %2$s went missing."
+            }
+    };
+    private static final String[] EVIDENCE_HINTS = {
+            "Who would want the %2$s gone?",
+            "Who could get into the %3$s?",
+            "Who was free to slip away?"
+    };
+    private static final String[] SUSPECT_NOISE = {
+            "%1$s arrived late, complaining about the traffic.",
+            "%1$s spent most of the afternoon in the garden with the children.",
+            "%1$s brought a dish of koeksisters for the table."
+    };
+    private static final String[] SCENE_NOISE = {
+            "Crumbs were found on the floor of the %3$s.",
+            "The window of the %3$s was found open.",
+            "The dog was barking near the %3$s at noon."
+    };
+
+    private final CaseDifficulty difficulty;
+    private final int suspectCount;
+
+    /**
+     * A generator with the usual number of suspects for the difficulty.
+     */
+    public CaseGenerator(CaseDifficulty difficulty) {
+        this(difficulty, defaultSuspects(difficulty));
+    }
+
+    /**
+     * A generator with a chosen number of suspects, e.g. thousands for load tests.
+     * The number of clues grows with the number of suspects.
+     */
+    public CaseGenerator(CaseDifficulty difficulty, int suspectCount) {
+        if (suspectCount < 2) {
+            throw new IllegalArgumentException("A case needs at least two suspects");
+        }
+        this.difficulty = difficulty;
+        this.suspectCount = suspectCount;
+    }
+
+    private static int defaultSuspects(CaseDifficulty difficulty) {
+        switch (difficulty) {
+            case EASY:
+                return 3;
+            case MEDIUM:
+                return 5;
+            default:
+                return 8;
+        }
+    }
+
+    public CaseDifficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Generates one verified case.
+     *
+     * @param seed Determines the case.
+     * @return The case.
+     */
+    public CaseSnapshot generate(long seed) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Draft draft = new Draft(new SplittableRandom(seed + attempt * 0x9E3779B97F4A7C15L));
+            CaseSolver.Solution solution = CaseSolver.solve(draft.clues, draft.names);
+            if (solution.isUnique() && solution.getCulprit().equals(draft.culprit)) {
+                return draft.toSnapshot();
+            }
+        }
+        throw new IllegalStateException("Could not generate a solvable case from seed " + seed);
+    }
+
+    /**
+     * Generates cases for consecutive seeds in parallel on all cores.
+     *
+     * @param firstSeed The seed of the first case.
+     * @param count     How many cases to generate.
+     * @return The cases, in seed order.
+     */
+    public List<CaseSnapshot> generateBatch(long firstSeed, int count) {
+        return IntStream.range(0, count).parallel()
+                .mapToObj(i -> generate(firstSeed + i))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A case being built from one random sequence.
+     */
+    private final class Draft {
+        private final SplittableRandom random;
+        private final String item;
+        private final String place;
+        private final String event;
+        private final List<String> names = new ArrayList<>();
+        private final int[] evidence;
+        private final String culprit;
+        private final List<Clue> clues = new ArrayList<>();
+
+        Draft(SplittableRandom random) {
+            this.random = random;
+            this.item = pick(ITEMS);
+            this.place = pick(PLACES);
+            this.event = pick(EVENTS);
+            int offset = random.nextInt(FIRST_NAMES.length);
+            for (int i = 0; i < suspectCount; i++) {
+                names.add(name(i, offset));
+            }
+            this.evidence = new int[suspectCount];
+            int culpritId = random.nextInt(suspectCount);
+            this.culprit = names.get(culpritId);
+            for (int id = 0; id < suspectCount; id++) {
+                evidence[id] = id == culpritId ? EvidenceType.ALL : innocentEvidence();
+                addClues(names.get(id), evidence[id]);
+            }
+            int sceneNoise = suspectCount * noisePerSuspect() / 2;
+            for (int i = 0; i < sceneNoise; i++) {
+                clues.add(new Clue(format(pick(SCENE_NOISE), ""), "", ""));
+            }
+            shuffle(clues);
+        }
+
+        private String name(int index, int offset) {
+            String name = FIRST_NAMES[(index + offset) % FIRST_NAMES.length];
+            int round = index / FIRST_NAMES.length;
+            if (round > 0) {
+                name += " " + SURNAMES[(round - 1) % SURNAMES.length];
+                int generation = (round - 1) / SURNAMES.length;
+                if (generation > 0) {
+                    name += " " + (generation + 1);
+                }
+            }
+            return name;
+        }
+
+        private int innocentEvidence() {
+            int kinds;
+            switch (difficulty) {
+                case EASY:
+                    kinds = random.nextInt(2);
+                    break;
+                case MEDIUM:
+                    kinds = random.nextInt(3);
+                    break;
+                default:
+                    // Every innocent looks suspicious in a hard case.
+                    kinds = 1 + random.nextInt(2);
+                    break;
+            }
+            int mask = 0;
+            while (Integer.bitCount(mask) < kinds) {
+                mask |= 1 << random.nextInt(EvidenceType.values().length);
+            }
+            return mask;
+        }
+
+        private void addClues(String suspect, int mask) {
+            for (EvidenceType type : EvidenceType.values()) {
+                if ((mask & type.bit()) == 0) {
+                    continue;
+                }
+                int count = 1 + random.nextInt(maxCluesPerKind());
+                for (int i = 0; i < count; i++) {
+                    String[] templates = EVIDENCE_CLUES[type.ordinal()];
+                    clues.add(new Clue(format(pick(templates), suspect), hint(type), suspect, type.bit()));
+                }
+            }
+            int noise = random.nextInt(noisePerSuspect() + 1);
+            for (int i = 0; i < noise; i++) {
+                clues.add(new Clue(format(pick(SUSPECT_NOISE), suspect), "", suspect));
+            }
+        }
+
+        private String hint(EvidenceType type) {
+            boolean hinted = difficulty == CaseDifficulty.EASY
+                    || (difficulty == CaseDifficulty.MEDIUM && random.nextBoolean());
+            return hinted ? format(EVIDENCE_HINTS[type.ordinal()], "") : "";
+        }
+
+        private Suspect suspect(int id) {
+            String name = names.get(id);
+            int mask = evidence[id];
+            boolean motive = (mask & EvidenceType.MOTIVE.bit()) != 0;
+            boolean means = (mask & EvidenceType.MEANS.bit()) != 0;
+            boolean opportunity = (mask & EvidenceType.OPPORTUNITY.bit()) != 0;
+
+            String whereQuestion = format("Where were you when the %2$s went missing?", name);
+            String confirmQuestion = "Can anyone confirm that?";
+            Map<String, Map<String, String>> dialogue = new LinkedHashMap<>();
+            Map<String, String> start = new LinkedHashMap<>();
+            start.put(whereQuestion, opportunity
+                    ? format("I stepped away for a moment, but I was nowhere near the %3$s.", name)
+                    : "I was at the table the whole time; ask anyone.");
+            start.put(format("Did you have any reason to take the %2$s?", name), motive
+                    ? "We had our differences, but I would never stoop so low."
+                    : format("None at all. I was looking forward to the %2$s as much as anyone.", name));
+            start.put(format("Could you get into the %3$s?", name), means
+                    ? "I suppose I could have, but so could others."
+                    : format("No, I have never had a key to the %3$s.", name));
+            dialogue.put("Start", start);
+
+            int depth = dialogueDepth();
+            if (depth >= 2) {
+                // A context named after a question holds that question's follow-ups.
+                Map<String, String> where = new LinkedHashMap<>();
+                where.put(confirmQuestion, opportunity
+                        ? "Not really. I was on my own for a while."
+                        : "Of course, half the family was sitting with me.");
+                dialogue.put(whereQuestion, where);
+            }
+            if (depth >= 3) {
+                Map<String, String> confirm = new LinkedHashMap<>();
+                confirm.put("Why should I believe you?", motive && means
+                        ? "Believe what you like. I have told you what I know."
+                        : "Because I have nothing to gain from lying to you.");
+                dialogue.put(confirmQuestion, confirm);
+            }
+            return new Suspect(name, dialogue);
+        }
+
+        CaseSnapshot toSnapshot() {
+            Map<String, Suspect> suspects = new LinkedHashMap<>();
+            for (int id = 0; id < suspectCount; id++) {
+                suspects.put(names.get(id), suspect(id));
+            }
+            String story = format("The Mystery of the Missing " + titleCase(item) + "\n\n"
+                    + "During the " + event + ", the host's prized %2$s disappeared from the %3$s. "
+                    + suspectCount + " guests were in the house at the time, and each of them has "
+                    + "something to hide. Only one of them had the motive, the means and the opportunity.\n"
+                    + "Difficulty: " + difficulty.name().toLowerCase(Locale.ROOT) + "\n", "");
+            String solution = format("%1$s had the motive, the means and the opportunity to take the %2$s.", culprit);
+            return new CaseSnapshot(story, clues, suspects, culprit, solution);
+        }
+
+        private String format(String template, String suspect) {
+            // Cheaper than String.format, which parses the template on every call.
+            StringBuilder sb = new StringBuilder(template.length() + 32);
+            int from = 0;
+            int at;
+            while ((at = template.indexOf('%', from)) >= 0) {
+                sb.append(template, from, at);
+                char arg = template.charAt(at + 1);
+                sb.append(arg == '1' ? suspect : arg == '2' ? item : place);
+                // Skip "%n$s".
+                from = at + 4;
+            }
+            return sb.append(template, from, template.length()).toString();
+        }
+
+        private String titleCase(String text) {
+            StringBuilder sb = new StringBuilder(text);
+            for (int i = 0; i < sb.length(); i++) {
+                if (i == 0 || sb.charAt(i - 1) == ' ') {
+                    sb.setCharAt(i, Character.toUpperCase(sb.charAt(i)));
+                }
+            }
+            return sb.toString();
+        }
+
+        private String pick(String[] options) {
+            return options[random.nextInt(options.length)];
+        }
+
+        private <T> void shuffle(List<T> list) {
+            for (int i = list.size() - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                T tmp = list.get(i);
+                list.set(i, list.get(j));
+                list.set(j, tmp);
+            }
+        }
+    }
+
+    private int maxCluesPerKind() {
+        switch (difficulty) {
+            case EASY:
+                return 1;
+            case MEDIUM:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    private int noisePerSuspect() {
+        switch (difficulty) {
+            case EASY:
+                return 0;
+            case MEDIUM:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    private int dialogueDepth() {
+        switch (difficulty) {
+            case EASY:
+                return 1;
+            case MEDIUM:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Generates cases and writes each as a bundle and a clue file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: CaseGenerator <EASY|MEDIUM|HARD> <count> <outputDir> [suspects]");
+            System.exit(1);
+        }
+        CaseDifficulty difficulty = CaseDifficulty.valueOf(args[0].toUpperCase(Locale.ROOT));
+        int count = Integer.parseInt(args[1]);
+        Path outputDir = Paths.get(args[2]);
+        CaseGenerator generator = args.length == 4
+                ? new CaseGenerator(difficulty, Integer.parseInt(args[3]))
+                : new CaseGenerator(difficulty);
+
+        long start = System.nanoTime();
+        List<CaseSnapshot> cases = generator.generateBatch(System.currentTimeMillis(), count);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Files.createDirectories(outputDir);
+        for (int i = 0; i < cases.size(); i++) {
+            String name = "case-" + difficulty.name().toLowerCase(Locale.ROOT) + "-" + (i + 1);
+            CaseSnapshot snapshot = cases.get(i);
+            CaseBundleCompiler.compile(snapshot, CaseBundleCompiler.titleOf(snapshot.getCaseStory()), difficulty,
+                    outputDir.resolve(name + ".bundle"));
+            FileManager.saveClues(outputDir.resolve(name + "-clues.txt").toString(), cases.get(i).getClues());
+        }
+        System.out.println("Generated and verified " + count + " cases in " + elapsedMillis + " ms; wrote " + outputDir);
+    }
+}
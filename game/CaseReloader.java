@@ -0,0 +1,178 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import metrics.Metrics;
+import metrics.Timer;
+
+/**
+ * Holds the current {@link CaseSnapshot} for a case and rebuilds it when the case files change.
+ *
+ * A background thread watches the directories of the narrative, clue and unlock rule files. When
+ * any of them is modified the case is reloaded on that thread and the new snapshot is swapped in
+ * atomically. Sessions that already hold the old snapshot keep using it unchanged; only
+ * sessions created afterwards see the new content.
+ */
+public class CaseReloader implements AutoCloseable {
+    // Wait for writes to settle before reloading, since editors often save in several steps.
+    private static final long SETTLE_MILLIS = 200;
+    private static final Timer RELOAD_TIMER = Metrics.timer("case.reload");
+
+    private final Path caseFile;
+    private final Path cluesFile;
+    // Null if the case has no unlock rules.
+    private final Path unlocksFile;
+    private final AtomicReference<CaseSnapshot> current;
+    private final List<Consumer<CaseSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private final Thread watcherThread;
+
+    /**
+     * Loads the case and starts watching its files.
+     *
+     * @param caseFilePath  Path to the case narrative text file.
+     * @param cluesFilePath Path to the clues text file.
+     */
+    public CaseReloader(String caseFilePath, String cluesFilePath) throws IOException {
+        this(caseFilePath, cluesFilePath, null);
+    }
+
+    /**
+     * Loads the case with its unlock rules and starts watching its files.
+     *
+     * @param caseFilePath    Path to the case narrative text file.
+     * @param cluesFilePath   Path to the clues text file.
+     * @param unlocksFilePath Path to the unlock rules, or null; the file may be created later.
+     */
+    public CaseReloader(String caseFilePath, String cluesFilePath, String unlocksFilePath) throws IOException {
+        this.caseFile = Paths.get(caseFilePath).toAbsolutePath().normalize();
+        this.cluesFile = Paths.get(cluesFilePath).toAbsolutePath().normalize();
+        this.unlocksFile = unlocksFilePath == null ? null : Paths.get(unlocksFilePath).toAbsolutePath().normalize();
+        this.current = new AtomicReference<>(CaseSnapshot.load(caseFilePath, cluesFilePath, unlocksFilePath));
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new LinkedHashSet<>();
+        directories.add(caseFile.getParent());
+        directories.add(cluesFile.getParent());
+        if (unlocksFile != null) {
+            directories.add(unlocksFile.getParent());
+        }
+        for (Path directory : directories) {
+            register(directory);
+        }
+        this.watcherThread = new Thread(this::watch, "case-reloader");
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.start();
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * @return The most recently loaded snapshot.
+     */
+    public CaseSnapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Registers a callback run on the watcher thread after each reload.
+     */
+    public void addListener(Consumer<CaseSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reloads the case now and swaps in the new snapshot. If the files cannot be read, or come
+     * back without a story or clues (e.g. caught in the middle of a save), the failure is counted
+     * and the previous snapshot stays; the save's next change triggers another reload.
+     *
+     * @return The new snapshot, or the previous one if the reload failed.
+     */
+    public CaseSnapshot reload() {
+        long start = Metrics.start();
+        CaseSnapshot snapshot;
+        try {
+            snapshot = CaseSnapshot.load(caseFile.toString(), cluesFile.toString(),
+                    unlocksFile == null ? null : unlocksFile.toString());
+        } catch (RuntimeException e) {
+            Metrics.recordError(RELOAD_TIMER, e);
+            return current.get();
+        }
+        if (snapshot.getCaseStory().trim().isEmpty() || snapshot.getClues().isEmpty()) {
+            Metrics.recordError(RELOAD_TIMER, new IOException("Case files are empty or unreadable; keeping the previous case"));
+            return current.get();
+        }
+        current.set(snapshot);
+        RELOAD_TIMER.stop(start);
+        for (Consumer<CaseSnapshot> listener : listeners) {
+            listener.accept(snapshot);
+        }
+        return snapshot;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                if (changed) {
+                    // Collapse the burst of events a single save produces into one reload.
+                    Thread.sleep(SETTLE_MILLIS);
+                    WatchKey more;
+                    while ((more = watchService.poll()) != null) {
+                        drain(more);
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed; stop watching.
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (file.equals(caseFile) || file.equals(cluesFile) || file.equals(unlocksFile)) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stops watching the case files.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            Metrics.recordError("case.reloader.close", e);
+        }
+        watcherThread.interrupt();
+    }
+}
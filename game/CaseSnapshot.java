@@ -0,0 +1,214 @@
+package game;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import model.Clue;
+import model.Suspect;
+import data.FileManager;
+import metrics.Metrics;
+
+/**
+ * An immutable, fully loaded case: narrative, clues, suspects and solution.
+ * A snapshot is loaded once and shared by every session playing the case;
+ * reloading produces a new snapshot rather than changing this one.
+ */
+public final class CaseSnapshot {
+    private final String caseStory;
+    private final List<Clue> clues;
+    private final ClueIndex clueIndex;
+    private final Map<String, Suspect> suspects;
+    private final DeductionEngine deduction;
+    private final QuestionMatcher questionMatcher;
+    private final UnlockRules unlockRules;
+    // The rule lines the rules were compiled from, kept so the case can be written to a bundle.
+    private final List<String> unlockRuleLines;
+    // The explanation shown when the culprit is accused.
+    private final String solution;
+    private final long loadedAt;
+
+    // Lines of a case file that describe the case rather than tell its story.
+    private static final String SUSPECT_PREFIX = "Suspect:";
+    private static final String CULPRIT_PREFIX = "Culprit:";
+    private static final String SOLUTION_PREFIX = "Solution:";
+
+    /**
+     * @param culprit The guilty suspect, used only when the clues' evidence does not single one out.
+     */
+    public CaseSnapshot(String caseStory, List<Clue> clues, Map<String, Suspect> suspects,
+                        String culprit, String solution) {
+        this(caseStory, clues, suspects, culprit, solution, Collections.emptyList());
+    }
+
+    /**
+     * @param culprit     The guilty suspect, used only when the clues' evidence does not single one out.
+     * @param unlockRules The lines of the case's {@link UnlockRules}; empty if nothing is locked.
+     * @throws IllegalArgumentException If a rule does not fit the case.
+     */
+    public CaseSnapshot(String caseStory, List<Clue> clues, Map<String, Suspect> suspects,
+                        String culprit, String solution, List<String> unlockRules) {
+        this.caseStory = caseStory;
+        this.clues = Collections.unmodifiableList(new ArrayList<>(clues));
+        this.clueIndex = new ClueIndex(this.clues);
+        this.suspects = Collections.unmodifiableMap(new LinkedHashMap<>(suspects));
+        this.deduction = new DeductionEngine(this.clues, this.suspects.keySet(), culprit);
+        this.questionMatcher = new QuestionMatcher(this.suspects.values());
+        this.unlockRules = UnlockRules.compile(unlockRules, this.clues, this.suspects);
+        this.unlockRuleLines = Collections.unmodifiableList(new ArrayList<>(unlockRules));
+        this.solution = solution;
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Loads a case from its narrative and clue files.
+     *
+     * @param caseFilePath  Path to the case narrative text file.
+     * @param cluesFilePath Path to the clues text file.
+     * @return The loaded snapshot.
+     */
+    public static CaseSnapshot load(String caseFilePath, String cluesFilePath) {
+        return load(caseFilePath, cluesFilePath, null);
+    }
+
+    /**
+     * Loads a case from its narrative, clue and unlock rule files.
+     *
+     * Besides the story, the case file holds the case's suspects and solution, one per line:
+     * <pre>
+     * Suspect: &lt;name&gt;|&lt;context&gt;|&lt;question&gt;|&lt;response&gt;   (or just the name, for no dialogue)
+     * Culprit: &lt;name&gt;
+     * Solution: &lt;the explanation shown when the culprit is accused&gt;
+     * </pre>
+     * Without Suspect lines the suspects are those the clues name, with no dialogue. The culprit
+     * is only used when the clues' evidence does not single one out.
+     *
+     * @param caseFilePath    Path to the case narrative text file.
+     * @param cluesFilePath   Path to the clues text file.
+     * @param unlocksFilePath Path to the unlock rules; if null, missing or invalid, nothing is locked.
+     * @return The loaded snapshot.
+     */
+    public static CaseSnapshot load(String caseFilePath, String cluesFilePath, String unlocksFilePath) {
+        StringBuilder story = new StringBuilder();
+        // Suspect -> context -> question -> response, in the file's order.
+        Map<String, Map<String, Map<String, String>>> dialogues = new LinkedHashMap<>();
+        String culprit = null;
+        String solution = "";
+        for (String line : FileManager.loadCase(caseFilePath).split("\n")) {
+            if (line.startsWith(SUSPECT_PREFIX)) {
+                String[] parts = line.substring(SUSPECT_PREFIX.length()).split("\\|", -1);
+                Map<String, Map<String, String>> dialogue =
+                        dialogues.computeIfAbsent(parts[0].trim(), name -> new LinkedHashMap<>());
+                if (parts.length == 4) {
+                    dialogue.computeIfAbsent(parts[1].trim(), context -> new LinkedHashMap<>())
+                            .put(parts[2].trim(), parts[3].trim());
+                } else if (parts.length != 1) {
+                    Metrics.recordError("case.load", new IOException("Malformed suspect line: " + line));
+                }
+            } else if (line.startsWith(CULPRIT_PREFIX)) {
+                culprit = line.substring(CULPRIT_PREFIX.length()).trim();
+            } else if (line.startsWith(SOLUTION_PREFIX)) {
+                solution = line.substring(SOLUTION_PREFIX.length()).trim();
+            } else {
+                story.append(line).append('\n');
+            }
+        }
+        String caseStory = story.toString().stripTrailing();
+        List<Clue> clues = FileManager.loadClues(cluesFilePath);
+        if (dialogues.isEmpty()) {
+            for (Clue clue : clues) {
+                if (!clue.getRelatedSuspect().isEmpty()) {
+                    dialogues.putIfAbsent(clue.getRelatedSuspect(), Collections.emptyMap());
+                }
+            }
+        }
+        Map<String, Suspect> suspects = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Map<String, String>>> dialogue : dialogues.entrySet()) {
+            suspects.put(dialogue.getKey(), new Suspect(dialogue.getKey(), dialogue.getValue()));
+        }
+        List<String> rules = Collections.emptyList();
+        if (unlocksFilePath != null && Files.exists(Paths.get(unlocksFilePath))) {
+            try {
+                rules = Files.readAllLines(Paths.get(unlocksFilePath), StandardCharsets.UTF_8);
+                // Check the rules here, so that a bad file only costs the locking.
+                UnlockRules.compile(rules, clues, suspects);
+            } catch (IOException | IllegalArgumentException e) {
+                Metrics.recordError("case.loadUnlocks", e);
+                rules = Collections.emptyList();
+            }
+        }
+        return new CaseSnapshot(caseStory.isEmpty() ? "" : caseStory + "\n", clues, suspects, culprit, solution, rules);
+    }
+
+    /**
+     * Loads a case from a compiled bundle.
+     *
+     * @param bundlePath Path to a bundle written by {@link CaseBundleCompiler}.
+     * @return The loaded snapshot.
+     * @see CaseBundle
+     */
+    public static CaseSnapshot loadBundle(String bundlePath) throws IOException {
+        return CaseBundle.open(Paths.get(bundlePath)).toSnapshot();
+    }
+
+    public String getCaseStory() {
+        return caseStory;
+    }
+
+    public List<Clue> getClues() {
+        return clues;
+    }
+
+    public ClueIndex getClueIndex() {
+        return clueIndex;
+    }
+
+    public Collection<Suspect> getSuspects() {
+        return suspects.values();
+    }
+
+    public Map<String, Suspect> getSuspectMap() {
+        return suspects;
+    }
+
+    public QuestionMatcher getQuestionMatcher() {
+        return questionMatcher;
+    }
+
+    /**
+     * @return The rules by which clues and dialogue contexts unlock.
+     */
+    public UnlockRules getUnlockRules() {
+        return unlockRules;
+    }
+
+    /**
+     * @return The lines the unlock rules were compiled from, comments included.
+     */
+    public List<String> getUnlockRuleLines() {
+        return unlockRuleLines;
+    }
+
+    public DeductionEngine getDeductionEngine() {
+        return deduction;
+    }
+
+    /**
+     * @return The guilty suspect, as worked out by the {@link DeductionEngine}.
+     */
+    public String getCulprit() {
+        return deduction.getCulprit();
+    }
+
+    public String getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return The time this snapshot was created, in milliseconds since the epoch.
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+}
@@ -0,0 +1,131 @@
+package game;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import model.Clue;
+import model.EvidenceType;
+
+/**
+ * Checks that a case can be solved: that exactly one suspect is consistent with the evidence,
+ * meaning the clues give them motive, means and opportunity.
+ *
+ * The clues are split in halves on a fork/join pool until the pieces are small; each piece
+ * computes an evidence mask per suspect and the halves are merged by OR-ing the masks.
+ * Unlike {@link DeductionEngine}, no tie-breaking is applied, so a case only passes if the
+ * evidence leaves no doubt at all.
+ */
+public final class CaseSolver {
+    // Below this many clues a piece is scanned directly instead of being split again.
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    private CaseSolver() {
+    }
+
+    /**
+     * The outcome of solving a case.
+     */
+    public static class Solution {
+        private final int consistentSuspects;
+        private final String culprit;
+
+        Solution(int consistentSuspects, String culprit) {
+            this.consistentSuspects = consistentSuspects;
+            this.culprit = culprit;
+        }
+
+        /**
+         * @return How many suspects have motive, means and opportunity.
+         */
+        public int getConsistentSuspects() {
+            return consistentSuspects;
+        }
+
+        /**
+         * @return The only consistent suspect, or null if there is not exactly one.
+         */
+        public String getCulprit() {
+            return culprit;
+        }
+
+        public boolean isUnique() {
+            return consistentSuspects == 1;
+        }
+    }
+
+    /**
+     * Solves a case on the common fork/join pool.
+     *
+     * @param clues    The case's clues.
+     * @param suspects The case's suspects; clues linked to anyone else are ignored.
+     * @return The solution.
+     */
+    public static Solution solve(List<Clue> clues, List<String> suspects) {
+        Map<String, Integer> ids = new HashMap<>(suspects.size() * 2);
+        for (int id = 0; id < suspects.size(); id++) {
+            ids.put(normalize(suspects.get(id)), id);
+        }
+        int[] evidence = ForkJoinPool.commonPool().invoke(new EvidenceTask(clues, ids, 0, clues.size()));
+        int consistent = 0;
+        int culprit = -1;
+        for (int id = 0; id < evidence.length; id++) {
+            if (evidence[id] == EvidenceType.ALL) {
+                consistent++;
+                culprit = id;
+            }
+        }
+        return new Solution(consistent, consistent == 1 ? suspects.get(culprit) : null);
+    }
+
+    /**
+     * Computes the evidence mask of every suspect over a range of clues.
+     */
+    private static final class EvidenceTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Clue> clues;
+        private final Map<String, Integer> ids;
+        private final int from;
+        private final int to;
+
+        EvidenceTask(List<Clue> clues, Map<String, Integer> ids, int from, int to) {
+            this.clues = clues;
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                int[] evidence = new int[ids.size()];
+                for (int i = from; i < to; i++) {
+                    Clue clue = clues.get(i);
+                    if (clue.getEvidenceMask() != 0) {
+                        Integer id = ids.get(normalize(clue.getRelatedSuspect()));
+                        if (id != null) {
+                            evidence[id] |= clue.getEvidenceMask();
+                        }
+                    }
+                }
+                return evidence;
+            }
+            int mid = (from + to) >>> 1;
+            EvidenceTask left = new EvidenceTask(clues, ids, from, mid);
+            left.fork();
+            int[] right = new EvidenceTask(clues, ids, mid, to).compute();
+            int[] merged = left.join();
+            for (int id = 0; id < merged.length; id++) {
+                merged[id] |= right[id];
+            }
+            return merged;
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
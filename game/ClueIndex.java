@@ -0,0 +1,333 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.Clue;
+
+/**
+ * Read-only lookup structures over a case's clues, built once when the case loads.
+ *
+ * Clues are indexed by related suspect and by the words of their description and hint.
+ * Each word maps to the sorted positions of the clues containing it, so a keyword query is an
+ * intersection of a few int arrays rather than a scan of every clue.
+ *
+ * Query syntax: words separated by spaces, with "quoted phrases" matching consecutive words.
+ * Every word and phrase must match. Matching ignores case and punctuation.
+ */
+public final class ClueIndex {
+    private static final int[] EMPTY = new int[0];
+    private static final int SEPARATOR = -1;
+
+    private final List<Clue> clues;
+    private final Map<String, int[]> bySuspect;
+    // Word -> word id, and word id -> sorted clue positions.
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final int[][] postings;
+    // Per clue: word ids of the description, a separator, then the hint's word ids.
+    private final int[][] clueWords;
+
+    /**
+     * One page of query results.
+     */
+    public static class Page {
+        private final List<Clue> clues;
+        private final int totalMatches;
+        private final int offset;
+
+        Page(List<Clue> clues, int totalMatches, int offset) {
+            this.clues = clues;
+            this.totalMatches = totalMatches;
+            this.offset = offset;
+        }
+
+        public List<Clue> getClues() {
+            return clues;
+        }
+
+        /**
+         * @return The number of clues matching the query across all pages.
+         */
+        public int getTotalMatches() {
+            return totalMatches;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public boolean hasMore() {
+            return offset + clues.size() < totalMatches;
+        }
+    }
+
+    /**
+     * Builds the index.
+     *
+     * @param clues The case's clues; the list must not change afterwards.
+     */
+    public ClueIndex(List<Clue> clues) {
+        this.clues = clues;
+        this.clueWords = new int[clues.size()][];
+        Map<String, IntList> suspectLists = new HashMap<>();
+        List<IntList> wordLists = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        IntList words = new IntList();
+        for (int i = 0; i < clues.size(); i++) {
+            Clue clue = clues.get(i);
+            if (!clue.getRelatedSuspect().isEmpty()) {
+                suspectLists.computeIfAbsent(normalize(clue.getRelatedSuspect()), k -> new IntList()).add(i);
+            }
+            tokens.clear();
+            tokenize(clue.getDescription(), tokens);
+            int descriptionWords = tokens.size();
+            tokenize(clue.getHint(), tokens);
+            words.clear();
+            for (int t = 0; t < tokens.size(); t++) {
+                if (t == descriptionWords) {
+                    // Keeps phrases from matching across the description/hint boundary.
+                    words.add(SEPARATOR);
+                }
+                Integer id = wordIds.get(tokens.get(t));
+                if (id == null) {
+                    id = wordLists.size();
+                    wordIds.put(tokens.get(t), id);
+                    wordLists.add(new IntList());
+                }
+                // Positions are added in increasing order, so only the last one needs checking.
+                wordLists.get(id).addIfNotLast(i);
+                words.add(id);
+            }
+            clueWords[i] = words.toArray();
+        }
+        this.bySuspect = toArrays(suspectLists);
+        this.postings = new int[wordLists.size()][];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = wordLists.get(id).toArray();
+        }
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, IntList> lists) {
+        Map<String, int[]> arrays = new HashMap<>(lists.size() * 2);
+        for (Map.Entry<String, IntList> entry : lists.entrySet()) {
+            arrays.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return arrays;
+    }
+
+    /**
+     * Returns every clue related to a suspect, in file order.
+     *
+     * @param suspectName The suspect's name (case-insensitive).
+     * @return The related clues.
+     */
+    public List<Clue> getCluesForSuspect(String suspectName) {
+        int[] positions = bySuspect.getOrDefault(normalize(suspectName), EMPTY);
+        return page(positions, positions.length, 0, positions.length).getClues();
+    }
+
+    /**
+     * Runs a keyword/phrase query over clue descriptions and hints.
+     *
+     * @param query  The query text.
+     * @param offset Index of the first match to return.
+     * @param limit  Maximum number of matches to return.
+     * @return The requested page of matches, in file order.
+     */
+    public Page search(String query, int offset, int limit) {
+        return search(null, query, offset, limit);
+    }
+
+    /**
+     * Runs a query restricted to the clues related to one suspect.
+     *
+     * @param suspectName The suspect's name, or null for all clues.
+     * @param query       The query text; empty matches every clue in scope.
+     * @param offset      Index of the first match to return.
+     * @param limit       Maximum number of matches to return.
+     * @return The requested page of matches, in file order.
+     */
+    public Page search(String suspectName, String query, int offset, int limit) {
+        List<String> words = new ArrayList<>();
+        List<List<String>> phraseWords = new ArrayList<>();
+        parseQuery(query, words, phraseWords);
+        List<int[]> phrases = new ArrayList<>();
+        for (List<String> phrase : phraseWords) {
+            int[] ids = new int[phrase.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = wordIds.getOrDefault(phrase.get(i), SEPARATOR);
+            }
+            phrases.add(ids);
+        }
+
+        int[] candidates = null;
+        int count = 0;
+        // Whether candidates is a scratch array that may be overwritten (not an index array).
+        boolean owned = false;
+        if (suspectName != null) {
+            candidates = bySuspect.getOrDefault(normalize(suspectName), EMPTY);
+            count = candidates.length;
+        }
+        // Intersect the rarest words first so the working set shrinks quickly.
+        List<int[]> lists = new ArrayList<>();
+        for (String word : words) {
+            Integer id = wordIds.get(word);
+            lists.add(id == null ? EMPTY : postings[id]);
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+        for (int[] list : lists) {
+            if (candidates == null) {
+                candidates = list;
+                count = list.length;
+            } else {
+                int[] out = new int[Math.min(count, list.length)];
+                count = intersect(candidates, count, list, out);
+                candidates = out;
+                owned = true;
+            }
+        }
+        if (candidates == null) {
+            // No words and no suspect: everything matches.
+            candidates = new int[clues.size()];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = i;
+            }
+            count = candidates.length;
+            owned = true;
+        }
+        if (!phrases.isEmpty()) {
+            int[] out = owned ? candidates : Arrays.copyOf(candidates, count);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (containsPhrases(clueWords[out[i]], phrases)) {
+                    out[kept++] = out[i];
+                }
+            }
+            candidates = out;
+            count = kept;
+        }
+        return page(candidates, count, offset, limit);
+    }
+
+    private Page page(int[] positions, int count, int offset, int limit) {
+        int from = Math.max(0, Math.min(offset, count));
+        int to = (int) Math.min(count, (long) from + Math.max(0, limit));
+        List<Clue> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(clues.get(positions[i]));
+        }
+        return new Page(Collections.unmodifiableList(result), count, from);
+    }
+
+    private static int intersect(int[] a, int aCount, int[] b, int[] out) {
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < aCount && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    private static boolean containsPhrases(int[] words, List<int[]> phrases) {
+        for (int[] phrase : phrases) {
+            if (indexOf(words, phrase) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(int[] words, int[] phrase) {
+        outer:
+        for (int i = 0; i + phrase.length <= words.length; i++) {
+            for (int j = 0; j < phrase.length; j++) {
+                if (words[i + j] != phrase[j] || phrase[j] == SEPARATOR) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static void parseQuery(String query, List<String> words, List<List<String>> phrases) {
+        if (query == null) {
+            return;
+        }
+        String[] parts = query.split("\"", -1);
+        // Even parts are outside quotes, odd parts are phrases.
+        for (int i = 0; i < parts.length; i++) {
+            List<String> tokens = new ArrayList<>();
+            tokenize(parts[i], tokens);
+            if (i % 2 == 1 && tokens.size() > 1) {
+                phrases.add(tokens);
+            }
+            words.addAll(tokens);
+        }
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     */
+    static void tokenize(String text, List<String> out) {
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                out.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            out.add(token.toString());
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A growable int array used while building postings.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addIfNotLast(int value) {
+            if (size == 0 || values[size - 1] != value) {
+                add(value);
+            }
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.Clue;
+import model.EvidenceType;
+
+/**
+ * Works out who committed a case from the evidence in its clues.
+ *
+ * Each clue linked to a suspect may establish motive, means and/or opportunity against them.
+ * The engine folds the clues into one evidence mask per suspect and one bitset of suspects per
+ * kind of evidence, then ranks the suspects once: first by how many kinds of evidence point at
+ * them, then by how many clues do. The culprit is the top-ranked suspect if they alone have
+ * motive, means and opportunity, or lead every other such suspect on supporting clues.
+ * Everything is computed when the case loads, so evaluating an accusation is a map lookup.
+ */
+public final class DeductionEngine {
+    // Suspect ids are packed into the low bits of a sort key.
+    private static final int ID_BITS = 24;
+    private static final long MAX_SUPPORT = (1L << (60 - ID_BITS)) - 1;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int[] evidence;
+    private final int[] support;
+    // Per evidence kind, the set of suspect ids it points at.
+    private final long[][] suspectsByType;
+    // Suspect ids, best first, and each suspect's position in that order.
+    private final int[] ranking;
+    private final int[] rankOf;
+    private final int culprit;
+    private final String fallbackCulprit;
+
+    /**
+     * One suspect's place in the ranking.
+     */
+    public static class Ranking {
+        private final int rank;
+        private final String suspect;
+        private final int evidence;
+        private final int supportingClues;
+
+        Ranking(int rank, String suspect, int evidence, int supportingClues) {
+            this.rank = rank;
+            this.suspect = suspect;
+            this.evidence = evidence;
+            this.supportingClues = supportingClues;
+        }
+
+        /**
+         * @return The 1-based position in the ranking.
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        public String getSuspect() {
+            return suspect;
+        }
+
+        /**
+         * @return The evidence against the suspect, as an {@link EvidenceType} mask.
+         */
+        public int getEvidence() {
+            return evidence;
+        }
+
+        public int getSupportingClues() {
+            return supportingClues;
+        }
+
+        @Override
+        public String toString() {
+            return rank + ". " + suspect + ": " + EvidenceType.describe(evidence)
+                    + " (" + supportingClues + (supportingClues == 1 ? " clue)" : " clues)");
+        }
+    }
+
+    /**
+     * The engine's judgement of one accusation.
+     */
+    public static class Verdict {
+        private final String accused;
+        private final boolean correct;
+        private final String culprit;
+        private final Ranking accusedRanking;
+        private final List<Ranking> leaders;
+
+        Verdict(String accused, boolean correct, String culprit, Ranking accusedRanking, List<Ranking> leaders) {
+            this.accused = accused;
+            this.correct = correct;
+            this.culprit = culprit;
+            this.accusedRanking = accusedRanking;
+            this.leaders = leaders;
+        }
+
+        public String getAccused() {
+            return accused;
+        }
+
+        public boolean isCorrect() {
+            return correct;
+        }
+
+        /**
+         * @return The culprit, or null if the case has none.
+         */
+        public String getCulprit() {
+            return culprit;
+        }
+
+        /**
+         * @return The accused suspect's ranking, or null if they are not a suspect in the case.
+         */
+        public Ranking getAccusedRanking() {
+            return accusedRanking;
+        }
+
+        /**
+         * @return The top of the ranking, best first.
+         */
+        public List<Ranking> getLeaders() {
+            return leaders;
+        }
+
+        /**
+         * Explains the verdict: the evidence against the accused, then the leading suspects.
+         */
+        public String explain() {
+            StringBuilder sb = new StringBuilder();
+            if (accusedRanking == null) {
+                sb.append(accused).append(" is not a suspect in this case.\n");
+            } else {
+                sb.append("Evidence against ").append(accusedRanking.getSuspect()).append(": ")
+                        .append(EvidenceType.describe(accusedRanking.getEvidence()));
+                int missing = EvidenceType.ALL & ~accusedRanking.getEvidence();
+                if (missing != 0) {
+                    sb.append("; no ").append(EvidenceType.describe(missing).replace(", ", " or "));
+                }
+                sb.append(".\n");
+            }
+            sb.append("Suspects by evidence:\n");
+            for (Ranking ranking : leaders) {
+                sb.append(ranking).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Builds the engine for a case.
+     *
+     * @param clues           The case's clues.
+     * @param suspectNames    The case's suspects; clues linked to anyone else are ignored.
+     * @param fallbackCulprit The culprit to use when the clues do not single one out, or null.
+     */
+    public DeductionEngine(List<Clue> clues, Collection<String> suspectNames, String fallbackCulprit) {
+        int n = suspectNames.size();
+        if (n >= 1 << ID_BITS) {
+            throw new IllegalArgumentException("Too many suspects: " + n);
+        }
+        this.names = suspectNames.toArray(new String[0]);
+        this.ids = new HashMap<>(n * 2);
+        for (int id = 0; id < n; id++) {
+            ids.put(normalize(names[id]), id);
+        }
+        this.evidence = new int[n];
+        this.support = new int[n];
+        this.suspectsByType = new long[EvidenceType.values().length][(n + 63) >>> 6];
+
+        // Clues usually come in runs about the same suspect; reuse the last lookup.
+        String lastName = null;
+        int lastId = -1;
+        for (Clue clue : clues) {
+            int mask = clue.getEvidenceMask();
+            if (mask == 0) {
+                continue;
+            }
+            String name = clue.getRelatedSuspect();
+            if (!name.equals(lastName)) {
+                lastName = name;
+                Integer id = ids.get(normalize(name));
+                lastId = id == null ? -1 : id;
+            }
+            if (lastId < 0) {
+                continue;
+            }
+            evidence[lastId] |= mask;
+            support[lastId]++;
+        }
+        for (int id = 0; id < n; id++) {
+            for (EvidenceType type : EvidenceType.values()) {
+                if ((evidence[id] & type.bit()) != 0) {
+                    suspectsByType[type.ordinal()][id >>> 6] |= 1L << id;
+                }
+            }
+        }
+
+        // Sort packed keys rather than boxed ids; ties keep the suspects' own order.
+        long[] keys = new long[n];
+        for (int id = 0; id < n; id++) {
+            long kinds = Integer.bitCount(evidence[id]);
+            keys[id] = (kinds << 60) | (Math.min(support[id], MAX_SUPPORT) << ID_BITS) | ((1 << ID_BITS) - 1 - id);
+        }
+        Arrays.sort(keys);
+        this.ranking = new int[n];
+        this.rankOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            int id = (1 << ID_BITS) - 1 - (int) (keys[n - 1 - i] & ((1 << ID_BITS) - 1));
+            ranking[i] = id;
+            rankOf[id] = i;
+        }
+
+        this.culprit = findCulprit();
+        this.fallbackCulprit = fallbackCulprit;
+    }
+
+    private int findCulprit() {
+        if (ranking.length == 0 || evidence[ranking[0]] != EvidenceType.ALL) {
+            return -1;
+        }
+        if (ranking.length > 1 && evidence[ranking[1]] == EvidenceType.ALL
+                && support[ranking[1]] == support[ranking[0]]) {
+            // Two suspects with the same complete evidence: the clues do not decide.
+            return -1;
+        }
+        return ranking[0];
+    }
+
+    /**
+     * @return The culprit the evidence points to, or the fallback culprit if it points to no one.
+     */
+    public String getCulprit() {
+        return culprit >= 0 ? names[culprit] : fallbackCulprit;
+    }
+
+    /**
+     * @return Whether the clues alone identify the culprit.
+     */
+    public boolean isDeterminedByEvidence() {
+        return culprit >= 0;
+    }
+
+    /**
+     * Checks an accusation without building an explanation.
+     *
+     * @param accusedSuspect The accused suspect's name (case-insensitive).
+     */
+    public boolean isCorrect(String accusedSuspect) {
+        if (culprit >= 0) {
+            Integer id = ids.get(normalize(accusedSuspect));
+            return id != null && id == culprit;
+        }
+        return fallbackCulprit != null && fallbackCulprit.equalsIgnoreCase(accusedSuspect.trim());
+    }
+
+    /**
+     * Judges an accusation and explains it.
+     *
+     * @param accusedSuspect The accused suspect's name (case-insensitive).
+     * @param leaders        How many of the top-ranked suspects to include in the explanation.
+     * @return The verdict.
+     */
+    public Verdict evaluate(String accusedSuspect, int leaders) {
+        Integer id = ids.get(normalize(accusedSuspect));
+        Ranking accused = id == null ? null : ranking(rankOf[id]);
+        return new Verdict(accusedSuspect, isCorrect(accusedSuspect), getCulprit(), accused, getRanking(leaders));
+    }
+
+    /**
+     * @param limit Maximum number of suspects to return.
+     * @return The top of the ranking, best first.
+     */
+    public List<Ranking> getRanking(int limit) {
+        int count = Math.max(0, Math.min(limit, ranking.length));
+        List<Ranking> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(ranking(i));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private Ranking ranking(int position) {
+        int id = ranking[position];
+        return new Ranking(position + 1, names[id], evidence[id], support[id]);
+    }
+
+    /**
+     * Returns the suspects against whom every kind of evidence in the mask has been found.
+     *
+     * @param mask An {@link EvidenceType} mask, e.g. {@link EvidenceType#ALL}.
+     * @return The matching suspects, in case order.
+     */
+    public List<String> getSuspectsWith(int mask) {
+        long[] words = new long[(names.length + 63) >>> 6];
+        Arrays.fill(words, -1L);
+        for (EvidenceType type : EvidenceType.values()) {
+            if ((mask & type.bit()) != 0) {
+                long[] set = suspectsByType[type.ordinal()];
+                for (int w = 0; w < words.length; w++) {
+                    words[w] &= set[w];
+                }
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                int id = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (id >= names.length) {
+                    break;
+                }
+                result.add(names[id]);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The evidence against a suspect, as an {@link EvidenceType} mask; 0 if unknown.
+     */
+    public int getEvidence(String suspectName) {
+        Integer id = ids.get(normalize(suspectName));
+        return id == null ? 0 : evidence[id];
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,109 +1,203 @@
 package game;
 
+import java.io.IOException;
 import java.util.*;
 import model.Clue;
+import model.DialogueGraph;
 import model.Suspect;
 import model.CaseDifficulty;
-import data.FileManager;
-import data.DatabaseManager;
+import model.TemplateSet;
+import data.GameStore;
+import metrics.Metrics;
+import metrics.Timer;
 
 /**
- * Core game logic that loads the case narrative, clues, and suspects.
+ * Core game logic over a loaded case: narrative, clues, and suspects.
  * It also handles suspect interrogation and evaluating accusations.
+ * Every operation that does more than return a field is timed in the {@link Metrics} registry.
  */
 public class GameLogic {
+    private static final Timer CASE_INFORMATION = Metrics.timer("game.getCaseInformation");
+    private static final Timer VIEW_CLUES = Metrics.timer("game.viewClues");
+    private static final Timer CLUES_FOR_SUSPECT = Metrics.timer("game.getCluesForSuspect");
+    private static final Timer SEARCH_CLUES = Metrics.timer("game.searchClues");
+    private static final Timer ASK_QUESTION = Metrics.timer("game.askQuestion");
+    private static final Timer MATCH_QUESTION = Metrics.timer("game.matchQuestion");
+    private static final Timer MAKE_ACCUSATION = Metrics.timer("game.makeAccusation");
+    private static final Timer IS_CORRECT_ACCUSATION = Metrics.timer("game.isCorrectAccusation");
+    private static final Timer EXPLAIN_ACCUSATION = Metrics.timer("game.explainAccusation");
+    // How many leading suspects an accusation's explanation lists.
+    private static final int EXPLAINED_SUSPECTS = 3;
+    // Analytics key for every question that matched nothing; the typed text is never stored.
+    static final String UNMATCHED_QUESTION = "(unmatched)";
+
+    /**
+     * The outcome of an accusation: whether it was correct, and the message shown for it.
+     */
+    public static final class Accusation {
+        private final boolean correct;
+        private final String message;
+
+        Accusation(boolean correct, String message) {
+            this.correct = correct;
+            this.message = message;
+        }
+
+        public boolean isCorrect() {
+            return correct;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    // The immutable case content, possibly shared with other sessions.
+    private final CaseSnapshot snapshot;
     private String caseStory;
     private List<Clue> clues;
     // Map to store suspects keyed by their name.
     private Map<String, Suspect> suspects;
     private CaseDifficulty difficulty;
-    private DatabaseManager dbManager;
+    // Which clues and dialogue contexts this session has unlocked; replaced when the difficulty changes.
+    private volatile UnlockState unlocks;
+    private GameStore store;
+    private volatile TemplateSet templates = TemplateSet.DEFAULT;
+    // The score a typed question needs to count as one of the suspect's questions.
+    private volatile double matchThreshold = QuestionMatcher.DEFAULT_THRESHOLD;
+    // The case information rendered with the current templates; the case never changes.
+    private volatile String caseInformation;
 
     /**
      * Constructs the GameLogic instance.
      *
      * @param caseFilePath  Path to the case narrative text file.
      * @param cluesFilePath Path to the clues text file.
-     * @param dbManager     The DatabaseManager handling database interactions.
-     */
-    public GameLogic(String caseFilePath, String cluesFilePath, DatabaseManager dbManager) {
-        // Load the case narrative from file.
-        this.caseStory = FileManager.loadCase(caseFilePath);
-        // Load clues from file.
-        this.clues = FileManager.loadClues(cluesFilePath);
-        this.dbManager = dbManager;
-        // Initialize suspects with branching dialogue.
-        initializeSuspects();
+     * @param store         Where progress is recorded: SQLite, memory, or any other {@link GameStore}.
+     */
+    public GameLogic(String caseFilePath, String cluesFilePath, GameStore store) {
+        this(CaseSnapshot.load(caseFilePath, cluesFilePath), store);
+    }
+
+    /**
+     * Constructs the GameLogic instance over an already loaded case.
+     * No files are read, so this is cheap enough to call once per session.
+     *
+     * @param snapshot  The case content.
+     * @param store     Where progress is recorded.
+     */
+    public GameLogic(CaseSnapshot snapshot, GameStore store) {
+        this.snapshot = snapshot;
+        this.caseStory = snapshot.getCaseStory();
+        this.clues = snapshot.getClues();
+        this.suspects = snapshot.getSuspectMap();
+        this.store = store;
         // Set a default difficulty.
         difficulty = CaseDifficulty.MEDIUM;
+        this.unlocks = snapshot.getUnlockRules().newState(difficulty);
     }
 
-    public String getCaseInformation() {
-        StringBuilder info = new StringBuilder();
-        info.append(getCaseStory());
-        info.append("\n\n---------- Case Information ----------\n");
-        info.append("Suspects:\n");
-        // Append each suspect's name.
-        for (Suspect suspect : getSuspects()) {
-            info.append("- ").append(suspect.getName()).append("\n");
-        }
-        info.append("\nFollow the clues, question the suspects and make your accusation wisely.\n");
-        return info.toString();
+    /**
+     * Creates logic for another player's session: the same case, store, templates, difficulty and
+     * match threshold, with no clues seen or questions asked.
+     */
+    public GameLogic newSession() {
+        GameLogic logic = new GameLogic(snapshot, store);
+        logic.setDifficulty(difficulty);
+        logic.setMatchThreshold(matchThreshold);
+        logic.setTemplates(templates);
+        return logic;
     }
 
     /**
-     * Initializes the suspects and their branching dialogue trees.
+     * @return The store this game records progress in.
      */
+    public GameStore getStore() {
+        return store;
+    }
+
     /**
-     * Initializes the suspects with dialogue branches that reflect the new clues.
-     *
-     * New clues indicate:
-     * - Sipho was last seen near the pantry and holds a key.
-     * - Nomsa had a heated conversation with Gogo over the secret scone recipe.
-     * - Thando was unexpectedly seen in the kitchen without a clear explanation.
+     * @return The case snapshot this game was built from.
+     */
+    public CaseSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public CaseDifficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Sets the difficulty the game's questions and accusations are counted under in the analytics,
+     * and whose unlock rules apply. Clues seen and questions asked so far still count.
      */
-    private void initializeSuspects() {
-        suspects = new LinkedHashMap<>();
+    public void setDifficulty(CaseDifficulty difficulty) {
+        this.difficulty = difficulty;
+        this.unlocks = unlocks.withDifficulty(difficulty);
+    }
 
-        // Suspect: Nomsa
-        // Clues: Had a heated conversation with Gogo about the secret recipe.
-        Map<String, Map<String, String>> nomsaDialogue = new LinkedHashMap<>();
-        Map<String, String> nomsaStart = new LinkedHashMap<>();
-        nomsaStart.put("Where were you when the scones disappeared?",
-                "I was in the main hall, keeping an eye on the setup. I admit I argued with Gogo earlier, but I wouldn't steal from my own family.");
-        nomsaStart.put("Can you explain your argument with Gogo?",
-                "Yes, we disagreed about the secret recipe, but that was just a passing conflict. I value our traditions too much.");
-        nomsaDialogue.put("Start", nomsaStart);
-        Suspect nomsa = new Suspect("Nomsa", nomsaDialogue);
+    /**
+     * @return This game's progress through the case's {@link UnlockRules}.
+     */
+    public UnlockState getUnlockState() {
+        return unlocks;
+    }
 
-        // Suspect: Sipho
-        // Clues: Last seen near the pantry; has key access; anonymous tip suggests frustration.
-        Map<String, Map<String, String>> siphoDialogue = new LinkedHashMap<>();
-        Map<String, String> siphoStart = new LinkedHashMap<>();
-        siphoStart.put("Where were you last seen?",
-                "I was near the pantry, checking the ingredients. Yes, I have a key—but I only use it when necessary.");
-        siphoStart.put("What about the tip saying you feel overlooked?",
-                "I admit I've felt underappreciated sometimes, but that doesn't mean I'd sabotage our traditions.");
-        siphoDialogue.put("Start", siphoStart);
-        Suspect sipho = new Suspect("Sipho", siphoDialogue);
+    public double getMatchThreshold() {
+        return matchThreshold;
+    }
 
-        // Suspect: Thando
-        // Clues: Unexpected kitchen visit without clear motive.
-        Map<String, Map<String, String>> thandoDialogue = new LinkedHashMap<>();
-        Map<String, String> thandoStart = new LinkedHashMap<>();
-        thandoStart.put("Why were you in the kitchen shortly before the scones went missing?",
-                "I was just curious; the kitchen is where the magic happens, and I wanted to see if everything was in order.");
-        thandoStart.put("Do you think you had anything to do with the disappearance?",
-                "No, I was simply passing through. I have no motive to disrupt the family tradition.");
-        thandoDialogue.put("Start", thandoStart);
-        Suspect thando = new Suspect("Thando", thandoDialogue);
+    /**
+     * Sets the similarity, from 0 to 1, a typed question needs to be answered as the suspect's
+     * closest question. Below it the suspect gives the default reply.
+     */
+    public void setMatchThreshold(double matchThreshold) {
+        this.matchThreshold = matchThreshold;
+    }
+
+    /**
+     * @return The templates this game renders its text with.
+     */
+    public TemplateSet getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Switches the templates, e.g. to the player's locale.
+     */
+    public void setTemplates(TemplateSet templates) {
+        this.templates = templates;
+        this.caseInformation = null;
+    }
 
-        // Store the newly created suspects in the map.
-        suspects.put(nomsa.getName(), nomsa);
-        suspects.put(sipho.getName(), sipho);
-        suspects.put(thando.getName(), thando);
+    /**
+     * Returns the story, the suspects and a closing line. It is rendered once and then reused.
+     */
+    public String getCaseInformation() {
+        String info = caseInformation;
+        if (info != null) {
+            return info;
+        }
+        long start = Metrics.start();
+        StringBuilder sb = new StringBuilder(caseStory.length() + 64 * suspects.size() + 128);
+        try {
+            templates.appendCaseInformation(caseStory, getSuspects(), sb);
+        } catch (IOException e) {
+            // A StringBuilder never throws.
+            throw new AssertionError(e);
+        }
+        info = sb.toString();
+        caseInformation = info;
+        CASE_INFORMATION.stop(start);
+        return info;
     }
 
+    /**
+     * Appends the case information to the caller's output.
+     */
+    public void appendCaseInformation(Appendable out) throws IOException {
+        out.append(getCaseInformation());
+    }
 
     /**
      * Retrieves the case narrative.
@@ -123,6 +217,83 @@ public class GameLogic {
         return clues;
     }
 
+    /**
+     * Retrieves the clues unlocked so far, in file order.
+     *
+     * @return A new list of the unlocked clues.
+     */
+    public List<Clue> getUnlockedClues() {
+        UnlockState state = unlocks;
+        List<Clue> unlocked = new ArrayList<>();
+        for (int i = 0; i < clues.size(); i++) {
+            if (state.isClueUnlocked(i)) {
+                unlocked.add(clues.get(i));
+            }
+        }
+        return unlocked;
+    }
+
+    /**
+     * Shows the player the unlocked clues: returns them and marks them as seen, which may
+     * unlock further clues and contexts for the next view.
+     *
+     * @return A new list of the clues unlocked before this view.
+     */
+    public List<Clue> viewClues() {
+        long start = Metrics.start();
+        UnlockState state = unlocks;
+        List<Clue> unlocked = new ArrayList<>();
+        int[] shown = new int[clues.size()];
+        for (int i = 0; i < clues.size(); i++) {
+            if (state.isClueUnlocked(i)) {
+                unlocked.add(clues.get(i));
+                shown[unlocked.size() - 1] = i;
+            }
+        }
+        // Mark only after collecting, so clues unlocked by this view wait for the next one.
+        for (int k = 0; k < unlocked.size(); k++) {
+            state.clueSeen(shown[k]);
+        }
+        VIEW_CLUES.stop(start);
+        return unlocked;
+    }
+
+    /**
+     * @return Whether the suspect's dialogue context is unlocked; unknown contexts are never locked.
+     */
+    public boolean isContextUnlocked(String suspectName, String context) {
+        Suspect suspect = suspects.get(suspectName);
+        return suspect == null || unlocks.isContextUnlocked(suspectName, suspect.getDialogueGraph().contextId(context));
+    }
+
+    /**
+     * Retrieves the clues related to one suspect, using the clue index.
+     *
+     * @param suspectName The name of the suspect.
+     * @return The related clues, in file order.
+     */
+    public List<Clue> getCluesForSuspect(String suspectName) {
+        long start = Metrics.start();
+        List<Clue> related = snapshot.getClueIndex().getCluesForSuspect(suspectName);
+        CLUES_FOR_SUSPECT.stop(start);
+        return related;
+    }
+
+    /**
+     * Searches clue descriptions and hints for keywords and "quoted phrases".
+     *
+     * @param query  The query text.
+     * @param offset Index of the first match to return.
+     * @param limit  Maximum number of matches to return.
+     * @return One page of matching clues.
+     */
+    public ClueIndex.Page searchClues(String query, int offset, int limit) {
+        long start = Metrics.start();
+        ClueIndex.Page page = snapshot.getClueIndex().search(query, offset, limit);
+        SEARCH_CLUES.stop(start);
+        return page;
+    }
+
     /**
      * Retrieves all suspects.
      *
@@ -136,40 +307,142 @@ public class GameLogic {
      * Simulates asking a suspect a particular question.
      *
      * It uses the specified dialogue context (e.g., "Start") and returns the suspect's response.
-     * In addition, it updates the suspect's record in the database as having been questioned.
+     * The question may also be typed freely: it is then answered as the suspect's closest
+     * question (see {@link #matchQuestion}), or with the default reply if none is close enough.
+     * In addition, it updates the suspect's record in the database as having been questioned
+     * and counts the question in the store's analytics.
      *
      * @param suspectName The name of the suspect.
      * @param context     The dialogue context (e.g., "Start" or follow-up branch).
-     * @param question    The chosen question.
+     * @param question    The chosen or typed question.
      * @return The suspect's response text.
      */
     public String askQuestion(String suspectName, String context, String question) {
+        long start = Metrics.start();
+        String response = answer(suspectName, question, matchQuestion(suspectName, context, question));
+        ASK_QUESTION.stop(start);
+        return response;
+    }
+
+    /**
+     * Finds the suspect's question a typed one means: the exact question of the context if there
+     * is one, otherwise the most similar question of the whole dialogue if it scores at least the
+     * {@link #getMatchThreshold() threshold}. Questions of locked contexts are never matched.
+     *
+     * @param suspectName The name of the suspect.
+     * @param context     The dialogue context.
+     * @param question    The chosen or typed question.
+     * @return The match, or null if the suspect is unknown or no question is close enough.
+     */
+    public QuestionMatcher.Match matchQuestion(String suspectName, String context, String question) {
+        long start = Metrics.start();
+        Suspect suspect = suspects.get(suspectName);
+        QuestionMatcher.Match match = null;
+        if (suspect != null) {
+            DialogueGraph graph = suspect.getDialogueGraph();
+            UnlockState state = unlocks;
+            int contextId = graph.contextId(context);
+            int id = graph.questionId(contextId, question);
+            if (id != DialogueGraph.NONE && state.isContextUnlocked(suspectName, contextId)) {
+                match = new QuestionMatcher.Match(graph, id, 1.0);
+            } else {
+                match = snapshot.getQuestionMatcher().match(suspectName, context, question,
+                        c -> state.isContextUnlocked(suspectName, c));
+                if (match != null && match.getScore() < matchThreshold) {
+                    match = null;
+                }
+            }
+        }
+        MATCH_QUESTION.stop(start);
+        return match;
+    }
+
+    /**
+     * Answers a question already matched with {@link #matchQuestion}, and records it.
+     *
+     * @param suspectName The name of the suspect.
+     * @param question    The question as asked.
+     * @param match       Its match, or null for the default reply. A match counts as asked for the unlock rules.
+     * @return The suspect's response text.
+     */
+    public String answer(String suspectName, String question, QuestionMatcher.Match match) {
         Suspect suspect = suspects.get(suspectName);
         if (suspect == null) {
             return "No such suspect found.";
         }
         // Update suspect's status as questioned.
-        dbManager.updateSuspect(suspectName, true);
-
-        return suspect.getResponse(context, question);
+        store.updateSuspect(suspectName, true);
+        store.recordQuestion(suspectName, match == null ? UNMATCHED_QUESTION : match.getQuestion(), difficulty);
+        if (match != null) {
+            unlocks.questionAsked(suspectName, match.getQuestionId());
+        }
+        // Without a match there is no question to look up, so the suspect gives the default reply.
+        return match == null ? suspect.getResponse(null, question) : match.getResponse();
     }
 
     /**
-     * Evaluates the player's accusation.
-     *
-     * For demonstration purposes, the outcome is pre-determined based on the suspect name.
+     * Evaluates the player's accusation against the evidence in the case's clues,
+     * and counts its outcome in the store's analytics.
      *
      * @param accusedSuspect The name of the suspect being accused.
      * @return A message indicating whether the accusation was correct.
      */
     public String makeAccusation(String accusedSuspect) {
+        return accuse(accusedSuspect).getMessage();
+    }
+
+    /**
+     * Evaluates the player's accusation once, counts its outcome in the store's analytics and
+     * returns both the outcome and its message, for callers that also record the outcome.
+     *
+     * @param accusedSuspect The name of the suspect being accused.
+     * @return The outcome.
+     */
+    public Accusation accuse(String accusedSuspect) {
+        long start = Metrics.start();
         String outcome;
-        // For this example, assume that only Sipho is guilty.
-        if ("Sipho".equalsIgnoreCase(accusedSuspect)) {
-            outcome = "Correct! Sipho was caught trying to steal Gogo's secret scone recipe. Case closed.";
+        boolean correct = isCorrectAccusation(accusedSuspect);
+        store.recordAccusation(accusedSuspect, correct, difficulty);
+        if (correct) {
+            String solution = snapshot.getSolution();
+            String culprit = snapshot.getCulprit();
+            if (solution == null || solution.isEmpty() || culprit == null || !solution.contains(culprit)) {
+                // No written solution, or one about another suspect than the evidence points to:
+                // explain from the evidence instead.
+                solution = explainAccusation(accusedSuspect).explain().trim();
+            }
+            outcome = "Correct! " + solution + " Case closed.";
         } else {
             outcome = "Incorrect. " + accusedSuspect + " is not responsible. The mystery deepens.";
         }
-        return outcome;
+        MAKE_ACCUSATION.stop(start);
+        return new Accusation(correct, outcome);
+    }
+
+    /**
+     * Checks whether the accused suspect is the culprit.
+     *
+     * @param accusedSuspect The name of the suspect being accused.
+     * @return true if the accusation is correct.
+     */
+    public boolean isCorrectAccusation(String accusedSuspect) {
+        long start = Metrics.start();
+        boolean correct = snapshot.getDeductionEngine().isCorrect(accusedSuspect);
+        IS_CORRECT_ACCUSATION.stop(start);
+        return correct;
+    }
+
+    /**
+     * Judges an accusation and explains it: the evidence against the accused and the
+     * suspects ranked by the evidence against them.
+     *
+     * @param accusedSuspect The name of the suspect being accused.
+     * @return The deduction engine's verdict.
+     */
+    public DeductionEngine.Verdict explainAccusation(String accusedSuspect) {
+        long start = Metrics.start();
+        DeductionEngine.Verdict verdict = snapshot.getDeductionEngine().evaluate(accusedSuspect, EXPLAINED_SUSPECTS);
+        EXPLAIN_ACCUSATION.stop(start);
+        return verdict;
     }
 }
\ No newline at end of file
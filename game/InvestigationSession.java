@@ -0,0 +1,97 @@
+package game;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The mutable state of one player's investigation.
+ * Progress is changed only by tasks running on the session's {@link SerialExecutor},
+ * so updates never contend; the progress object's own monitor only makes the copies
+ * returned by the getters safe to read from other threads.
+ */
+public class InvestigationSession {
+    private final String id;
+    private final String playerName;
+    private final GameLogic gameLogic;
+    private final SerialExecutor executor;
+
+    private final SessionProgress progress;
+
+    InvestigationSession(String id, String playerName, GameLogic gameLogic, SerialExecutor executor,
+                         SessionProgress progress) {
+        this.id = id;
+        this.playerName = playerName;
+        this.gameLogic = gameLogic;
+        this.executor = executor;
+        this.progress = progress;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * @return The shared case logic this session was started with.
+     */
+    public GameLogic getGameLogic() {
+        return gameLogic;
+    }
+
+    SerialExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return The session's progress, which can be checkpointed and restored.
+     */
+    public SessionProgress getProgress() {
+        return progress;
+    }
+
+    public int getQuestionsAsked() {
+        return progress.getQuestionCount();
+    }
+
+    public boolean hasViewedClues() {
+        return progress.getCluesSeenCount() > 0;
+    }
+
+    public boolean isSolved() {
+        return progress.isSolved();
+    }
+
+    public Set<String> getQuestionedSuspects() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(progress.getQuestionedSuspects()));
+    }
+
+    public List<String> getAccusations() {
+        return progress.getAccusations();
+    }
+
+    // The methods below run on the session's executor only.
+
+    void recordQuestion(String suspectName, String context, String question) {
+        progress.recordQuestion(suspectName, context, question);
+    }
+
+    void recordCluesViewed() {
+        // Only unlocked clues are shown, so the game logic knows which ones were seen.
+        UnlockState unlocks = gameLogic.getUnlockState();
+        int count = gameLogic.getClues().size();
+        for (int i = 0; i < count; i++) {
+            if (unlocks.isClueSeen(i)) {
+                progress.markClueSeen(i);
+            }
+        }
+    }
+
+    void recordAccusation(String accusedSuspect, boolean correct) {
+        progress.recordAccusation(accusedSuspect, correct);
+    }
+}
@@ -0,0 +1,398 @@
+package game;
+
+import data.GameStore;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import metrics.Metrics;
+import metrics.Timer;
+import model.Clue;
+import model.Suspect;
+
+/**
+ * Drives {@link GameLogic} with bot players and reports how it holds up.
+ *
+ * Every bot plays its own session over one shared case and one shared {@link GameStore}.
+ * A scripted bot reads the case information and the clues, asks every question of every
+ * suspect in every dialogue context, accuses the culprit, and starts over. A random bot picks
+ * its next operation and its arguments at random.
+ *
+ * Closed-loop runs keep each bot busy: a bot starts its next operation as soon as the last
+ * one returns, so the load adapts to the game's speed. Open-loop runs start operations at a
+ * fixed rate whether or not earlier ones have finished, and measure each latency from the
+ * time the operation was due, so queueing shows up in the percentiles instead of lowering the
+ * rate. Latencies go to the "load.*" timers of the {@link Metrics} registry, which is printed
+ * at the end with the game's and the store's own timers.
+ *
+ * Usage: {@code java game.LoadGenerator [key=value ...]} with the keys
+ * <ul>
+ *   <li>mode: closed (default) or open</li>
+ *   <li>bots: number of bot players, and of threads in closed mode (default 8)</li>
+ *   <li>rate: operations per second in open mode (default 1000)</li>
+ *   <li>threads: worker threads in open mode (default: number of processors)</li>
+ *   <li>seconds: run time (default 30)</li>
+ *   <li>players: scripted, random or mixed (default mixed)</li>
+ *   <li>store: a {@link GameStore#open} location (default jdbc:sqlite:loadtest.db)</li>
+ *   <li>case, clues and unlocks: the case files (default case1.txt, clues.txt and unlocks.txt,
+ *       which may be missing), or bundle: a case bundle</li>
+ *   <li>seed: the random bots' seed (default: the current time)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+    // Percentages of random bot operations; questions take the rest.
+    private static final int RANDOM_CASE_INFORMATION = 5;
+    private static final int RANDOM_CLUES = 10;
+    private static final int RANDOM_ACCUSATION = 10;
+    // Clue rows a player sees at once, rendered when the clue list is viewed.
+    private static final int VISIBLE_CLUES = 50;
+    // Open-loop operations allowed to wait for a bot before new ones are dropped.
+    private static final int MAX_OUTSTANDING = 100_000;
+
+    /**
+     * What a bot can do, with the timer its latency goes to.
+     */
+    public enum Operation {
+        CASE_INFORMATION("load.getCaseInformation"),
+        CLUES("load.getClues"),
+        ASK_QUESTION("load.askQuestion"),
+        MAKE_ACCUSATION("load.makeAccusation");
+
+        private final Timer timer;
+
+        Operation(String timerName) {
+            this.timer = Metrics.timer(timerName);
+        }
+
+        public Timer getTimer() {
+            return timer;
+        }
+    }
+
+    /**
+     * One operation with its arguments.
+     */
+    private static final class Step {
+        final Operation operation;
+        final String suspect;
+        final String context;
+        final String question;
+
+        Step(Operation operation, String suspect, String context, String question) {
+            this.operation = operation;
+            this.suspect = suspect;
+            this.context = context;
+            this.question = question;
+        }
+    }
+
+    /**
+     * A bot player: its own session and the choice of its next step.
+     */
+    private abstract static class Bot {
+        final GameLogic logic;
+
+        Bot(GameLogic logic) {
+            this.logic = logic;
+        }
+
+        abstract Step next();
+
+        void perform(Step step) {
+            switch (step.operation) {
+                case CASE_INFORMATION:
+                    logic.getCaseInformation();
+                    break;
+                case CLUES:
+                    List<Clue> clues = logic.viewClues();
+                    for (int i = 0; i < clues.size() && i < VISIBLE_CLUES; i++) {
+                        logic.getTemplates().formatClueRow(clues.get(i));
+                    }
+                    break;
+                case ASK_QUESTION:
+                    logic.askQuestion(step.suspect, step.context, step.question);
+                    break;
+                case MAKE_ACCUSATION:
+                    logic.makeAccusation(step.suspect);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation " + step.operation);
+            }
+        }
+    }
+
+    private static final class ScriptedBot extends Bot {
+        private final List<Step> script;
+        private int position;
+
+        ScriptedBot(GameLogic logic, List<Step> script, int start) {
+            super(logic);
+            this.script = script;
+            this.position = start % script.size();
+        }
+
+        @Override
+        Step next() {
+            Step step = script.get(position);
+            position = (position + 1) % script.size();
+            return step;
+        }
+    }
+
+    private static final class RandomBot extends Bot {
+        private final SplittableRandom random;
+        private final List<Step> questions;
+        private final String[] suspects;
+
+        RandomBot(GameLogic logic, SplittableRandom random, List<Step> questions, String[] suspects) {
+            super(logic);
+            this.random = random;
+            this.questions = questions;
+            this.suspects = suspects;
+        }
+
+        @Override
+        Step next() {
+            int roll = random.nextInt(100);
+            if (roll < RANDOM_CASE_INFORMATION) {
+                return new Step(Operation.CASE_INFORMATION, null, null, null);
+            }
+            roll -= RANDOM_CASE_INFORMATION;
+            if (roll < RANDOM_CLUES) {
+                return new Step(Operation.CLUES, null, null, null);
+            }
+            roll -= RANDOM_CLUES;
+            if (roll < RANDOM_ACCUSATION || questions.isEmpty()) {
+                return new Step(Operation.MAKE_ACCUSATION, suspects[random.nextInt(suspects.length)], null, null);
+            }
+            return questions.get(random.nextInt(questions.size()));
+        }
+    }
+
+    private final List<Bot> bots = new ArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param snapshot The case every bot plays.
+     * @param store    The store every bot's session records progress in.
+     * @param bots     The number of bots; at least one.
+     * @param players  scripted, random or mixed (alternating).
+     * @param seed     The seed of the random bots.
+     */
+    public LoadGenerator(CaseSnapshot snapshot, GameStore store, int bots, String players, long seed) {
+        if (bots <= 0) {
+            throw new IllegalArgumentException("bots must be at least 1, not " + bots);
+        }
+        List<Step> questions = new ArrayList<>();
+        List<String> suspectNames = new ArrayList<>();
+        for (Suspect suspect : snapshot.getSuspects()) {
+            suspectNames.add(suspect.getName());
+            for (String context : suspect.getContexts()) {
+                for (String question : suspect.getDialogueOptions(context).keySet()) {
+                    questions.add(new Step(Operation.ASK_QUESTION, suspect.getName(), context, question));
+                }
+            }
+        }
+        if (suspectNames.isEmpty()) {
+            throw new IllegalArgumentException("The case has no suspects");
+        }
+        List<Step> script = new ArrayList<>();
+        script.add(new Step(Operation.CASE_INFORMATION, null, null, null));
+        script.add(new Step(Operation.CLUES, null, null, null));
+        script.addAll(questions);
+        script.add(new Step(Operation.MAKE_ACCUSATION, snapshot.getCulprit(), null, null));
+
+        String[] suspects = suspectNames.toArray(new String[0]);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < bots; i++) {
+            GameLogic logic = new GameLogic(snapshot, store);
+            boolean scripted = players.equals("scripted") || (players.equals("mixed") && i % 2 == 0);
+            if (!scripted && !players.equals("random") && !players.equals("mixed")) {
+                throw new IllegalArgumentException("Unknown players: " + players);
+            }
+            // Scripted bots start at different points of the script so they do not move in lockstep.
+            this.bots.add(scripted
+                    ? new ScriptedBot(logic, script, i * script.size() / bots)
+                    : new RandomBot(logic, random.split(), questions, suspects));
+        }
+    }
+
+    private void step(Bot bot, long dueNanos) {
+        Step step = bot.next();
+        Timer timer = step.operation.getTimer();
+        try {
+            bot.perform(step);
+            timer.record(System.nanoTime() - dueNanos);
+        } catch (RuntimeException e) {
+            // Counted, not printed: a failing operation would flood the output under load.
+            timer.recordError(e);
+        }
+    }
+
+    /**
+     * Runs every bot on its own thread, back to back, for the given time.
+     */
+    public void runClosedLoop(long seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(bots.size());
+        for (int i = 0; i < bots.size(); i++) {
+            Bot bot = bots.get(i);
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        step(bot, System.nanoTime());
+                    }
+                } finally {
+                    // An Error ends this bot, but must not leave the run waiting for it.
+                    done.countDown();
+                }
+            }, "bot-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    /**
+     * Starts operations at a fixed rate for the given time, spread over the bots in turn, and
+     * waits for them to finish. A bot runs one operation at a time, so operations due while
+     * their bot is busy wait; beyond {@value #MAX_OUTSTANDING} waiting operations new ones are dropped.
+     *
+     * @param seconds      The run time.
+     * @param opsPerSecond The rate operations are started at.
+     * @param threads      The worker threads shared by all bots.
+     */
+    public void runOpenLoop(long seconds, double opsPerSecond, int threads) throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bot-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<SerialExecutor> executors = new ArrayList<>();
+        for (int i = 0; i < bots.size(); i++) {
+            executors.add(new SerialExecutor(workers));
+        }
+        AtomicInteger outstanding = new AtomicInteger();
+        double intervalNanos = 1e9 / opsPerSecond;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (outstanding.get() >= MAX_OUTSTANDING) {
+                dropped.increment();
+                continue;
+            }
+            int index = (int) (i % bots.size());
+            Bot bot = bots.get(index);
+            outstanding.incrementAndGet();
+            executors.get(index).execute(() -> {
+                try {
+                    step(bot, due);
+                } finally {
+                    outstanding.decrementAndGet();
+                }
+            });
+        }
+        // Bots hand their next operation to the pool as each one ends, so wait for them before shutting it down.
+        long drainDeadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * @return The number of open-loop operations dropped because too many were waiting.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Prints throughput, latency percentiles and errors per operation.
+     *
+     * @param elapsedNanos How long the run took.
+     */
+    public void report(long elapsedNanos, Appendable out) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        out.append(String.format("%-18s %10s %10s %7s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/s", "errors", "p50(us)", "p99(us)", "p999(us)", "max(us)"));
+        for (Operation operation : Operation.values()) {
+            Timer timer = operation.getTimer();
+            total += timer.getCount();
+            out.append(String.format("%-18s %10d %10.0f %7d %10.1f %10.1f %10.1f %10.1f%n",
+                    operation.name().toLowerCase(Locale.ROOT), timer.getCount(), timer.getCount() / seconds,
+                    timer.getErrorCount(), timer.getP50Micros(), timer.getP99Micros(), timer.getP999Micros(),
+                    timer.getMaxMicros()));
+        }
+        out.append(String.format("%d operations in %.1f s: %.0f ops/s with %d bots", total, seconds,
+                total / seconds, bots.size()));
+        out.append(dropped.sum() > 0 ? String.format("; %d dropped%n", dropped.sum()) : System.lineSeparator());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Usage: LoadGenerator [mode=closed|open] [bots=8] [rate=1000] [threads=N] "
+                        + "[seconds=30] [players=scripted|random|mixed] [store=jdbc:sqlite:loadtest.db] "
+                        + "[case=case1.txt clues=clues.txt unlocks=unlocks.txt | bundle=file] [seed=N]");
+                System.exit(1);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        if (!Metrics.ENABLED) {
+            System.err.println("LoadGenerator records latencies in the metrics registry; do not set -Djavadet.metrics=false");
+            System.exit(1);
+        }
+        String mode = options.getOrDefault("mode", "closed");
+        int bots = Integer.parseInt(options.getOrDefault("bots", "8"));
+        long seconds = Long.parseLong(options.getOrDefault("seconds", "30"));
+        CaseSnapshot snapshot = options.containsKey("bundle")
+                ? CaseSnapshot.loadBundle(options.get("bundle"))
+                : CaseSnapshot.load(options.getOrDefault("case", "case1.txt"), options.getOrDefault("clues", "clues.txt"),
+                        options.getOrDefault("unlocks", "unlocks.txt"));
+
+        try (GameStore store = GameStore.open(options.getOrDefault("store", "jdbc:sqlite:loadtest.db"))) {
+            LoadGenerator generator = new LoadGenerator(snapshot, store, bots, options.getOrDefault("players", "mixed"),
+                    Long.parseLong(options.getOrDefault("seed", Long.toString(System.currentTimeMillis()))));
+            for (Operation operation : Operation.values()) {
+                operation.getTimer().reset();
+            }
+            long start = System.nanoTime();
+            if (mode.equals("open")) {
+                generator.runOpenLoop(seconds, Double.parseDouble(options.getOrDefault("rate", "1000")),
+                        Integer.parseInt(options.getOrDefault("threads",
+                                Integer.toString(Runtime.getRuntime().availableProcessors()))));
+            } else if (mode.equals("closed")) {
+                generator.runClosedLoop(seconds);
+            } else {
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+            long elapsed = System.nanoTime() - start;
+            generator.report(elapsed, System.out);
+            System.out.println();
+            Metrics.dump(System.out);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import model.DialogueGraph;
+import model.Suspect;
+
+/**
+ * Matches typed questions to the questions of each suspect's dialogue, built once per case.
+ *
+ * Questions are normalized (lower case, letters and digits, single spaces) and cut into
+ * character trigrams, so typos and word-order changes still share most trigrams. Per suspect,
+ * each trigram maps to the sorted ids of the questions containing it. A typed question is
+ * scored against every question it shares a trigram with by the Dice coefficient,
+ * 2 * shared / (typed + candidate), which is 1 for the same text and near 0 for unrelated
+ * text. Only the postings of the typed question's trigrams are read, and only the questions
+ * they list are scored, so the cost of a match grows with the number of questions sharing a
+ * trigram with the typed one, not with the suspect's whole dialogue.
+ */
+public final class QuestionMatcher {
+    /** The score a match needs unless the game sets another threshold. */
+    public static final double DEFAULT_THRESHOLD = 0.5;
+
+    private final Map<String, SuspectIndex> bySuspect = new HashMap<>();
+
+    /**
+     * The best question for a typed one.
+     */
+    public static final class Match {
+        private final DialogueGraph graph;
+        private final int questionId;
+        private final double score;
+
+        Match(DialogueGraph graph, int questionId, double score) {
+            this.graph = graph;
+            this.questionId = questionId;
+            this.score = score;
+        }
+
+        /**
+         * @return The matched question's id in the suspect's {@link DialogueGraph}.
+         */
+        public int getQuestionId() {
+            return questionId;
+        }
+
+        public String getQuestion() {
+            return graph.question(questionId);
+        }
+
+        /**
+         * @return The context the matched question belongs to.
+         */
+        public String getContext() {
+            return graph.contextName(graph.contextOf(questionId));
+        }
+
+        public String getResponse() {
+            return graph.response(questionId);
+        }
+
+        /**
+         * @return The context the matched question leads to, or null if the dialogue ends there.
+         */
+        public String getNextContext() {
+            int next = graph.nextContext(questionId);
+            return next == DialogueGraph.NONE ? null : graph.contextName(next);
+        }
+
+        /**
+         * @return The similarity to the typed question, from 0 to 1.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return getQuestion() + " (" + String.format("%.2f", score) + ")";
+        }
+    }
+
+    /**
+     * One suspect's trigram index.
+     */
+    private static final class SuspectIndex {
+        final DialogueGraph graph;
+        // Sorted packed trigrams, and for each the sorted ids of the questions containing it.
+        final long[] trigrams;
+        final int[][] postings;
+        // Number of distinct trigrams of each question.
+        final int[] trigramCounts;
+
+        SuspectIndex(DialogueGraph graph) {
+            this.graph = graph;
+            int questions = graph.getQuestionCount();
+            this.trigramCounts = new int[questions];
+            long[][] questionKeys = new long[questions][];
+            int total = 0;
+            for (int q = 0; q < questions; q++) {
+                questionKeys[q] = trigrams(graph.question(q));
+                trigramCounts[q] = questionKeys[q].length;
+                total += questionKeys[q].length;
+            }
+            // The dictionary is every distinct trigram, sorted.
+            long[] all = new long[total];
+            int filled = 0;
+            for (long[] keys : questionKeys) {
+                System.arraycopy(keys, 0, all, filled, keys.length);
+                filled += keys.length;
+            }
+            this.trigrams = sortedDistinct(all);
+            // Size each posting list, then fill them in question order so they come out sorted.
+            int[] sizes = new int[trigrams.length];
+            for (long[] keys : questionKeys) {
+                for (long key : keys) {
+                    sizes[Arrays.binarySearch(trigrams, key)]++;
+                }
+            }
+            this.postings = new int[trigrams.length][];
+            for (int t = 0; t < trigrams.length; t++) {
+                postings[t] = new int[sizes[t]];
+                sizes[t] = 0;
+            }
+            for (int q = 0; q < questions; q++) {
+                for (long key : questionKeys[q]) {
+                    int t = Arrays.binarySearch(trigrams, key);
+                    postings[t][sizes[t]++] = q;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the index over every suspect's dialogue.
+     */
+    public QuestionMatcher(Collection<Suspect> suspects) {
+        for (Suspect suspect : suspects) {
+            bySuspect.put(suspect.getName(), new SuspectIndex(suspect.getDialogueGraph()));
+        }
+    }
+
+    /**
+     * Finds the suspect's question most similar to a typed one. Among equally good matches a
+     * question of the current context wins, then the one defined first.
+     *
+     * @param suspectName The suspect being questioned.
+     * @param context     The current dialogue context, or null.
+     * @param typed       What the player typed.
+     * @return The best match, or null if the suspect is unknown or no question shares any trigram.
+     */
+    public Match match(String suspectName, String context, String typed) {
+        return match(suspectName, context, typed, null);
+    }
+
+    /**
+     * Finds the suspect's question most similar to a typed one among the questions of some contexts.
+     *
+     * @param allowedContexts Tests a context id of the suspect's dialogue; null allows every context.
+     * @see #match(String, String, String)
+     */
+    public Match match(String suspectName, String context, String typed, IntPredicate allowedContexts) {
+        SuspectIndex index = bySuspect.get(suspectName);
+        if (index == null) {
+            return null;
+        }
+        long[] keys = trigrams(typed);
+        if (keys.length == 0) {
+            return null;
+        }
+        // Every posting of the typed trigrams, sorted: each question's run is its shared trigram count.
+        int[][] lists = new int[keys.length][];
+        int listCount = 0;
+        int touched = 0;
+        for (long key : keys) {
+            int t = Arrays.binarySearch(index.trigrams, key);
+            if (t >= 0) {
+                lists[listCount++] = index.postings[t];
+                touched += index.postings[t].length;
+            }
+        }
+        int[] ids = new int[touched];
+        touched = 0;
+        for (int l = 0; l < listCount; l++) {
+            System.arraycopy(lists[l], 0, ids, touched, lists[l].length);
+            touched += lists[l].length;
+        }
+        Arrays.sort(ids);
+        int contextId = context == null ? DialogueGraph.NONE : index.graph.contextId(context);
+        int first = contextId == DialogueGraph.NONE ? 0 : index.graph.firstQuestion(contextId);
+        int end = contextId == DialogueGraph.NONE ? 0 : index.graph.endQuestion(contextId);
+        int best = -1;
+        double bestScore = 0;
+        boolean bestInContext = false;
+        for (int i = 0, run; i < ids.length; i += run) {
+            int q = ids[i];
+            run = 1;
+            while (i + run < ids.length && ids[i + run] == q) {
+                run++;
+            }
+            double score = 2.0 * run / (keys.length + index.trigramCounts[q]);
+            boolean inContext = q >= first && q < end;
+            // The context is only checked for a question that would win.
+            if ((score > bestScore || (score == bestScore && inContext && !bestInContext))
+                    && (allowedContexts == null || allowedContexts.test(index.graph.contextOf(q)))) {
+                best = q;
+                bestScore = score;
+                bestInContext = inContext;
+            }
+        }
+        return best < 0 ? null : new Match(index.graph, best, bestScore);
+    }
+
+    /**
+     * Returns the distinct trigrams of normalized text, each packed as three 16-bit chars, sorted.
+     * Words are padded with spaces so that short words and word boundaries count.
+     */
+    static long[] trigrams(String text) {
+        StringBuilder normalized = new StringBuilder(text.length() + 2).append(' ');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            } else if (normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+        if (normalized.charAt(normalized.length() - 1) != ' ') {
+            normalized.append(' ');
+        }
+        if (normalized.length() < 3) {
+            return new long[0];
+        }
+        long[] keys = new long[normalized.length() - 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) normalized.charAt(i) << 32) | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2);
+        }
+        return sortedDistinct(keys);
+    }
+
+    private static long[] sortedDistinct(long[] keys) {
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+}
@@ -0,0 +1,58 @@
+package game;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks one at a time, in submission order, on top of a shared executor.
+ * Each investigation session owns one, so session state needs no locks while
+ * many sessions still run in parallel on the shared worker threads.
+ *
+ * If the shared executor rejects a task, for example because it was shut down, the rejection is
+ * thrown to the caller and the session is left idle rather than waiting on a task that will
+ * never run; tasks still queued are handed over again on the next {@link #execute}.
+ */
+public class SerialExecutor implements Executor {
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private final Executor delegate;
+    private Runnable active;
+
+    public SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        Runnable next = () -> {
+            try {
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        };
+        tasks.add(next);
+        if (active == null) {
+            try {
+                scheduleNext();
+            } catch (RejectedExecutionException e) {
+                // The caller learns that its task will not run.
+                tasks.remove(next);
+                throw e;
+            }
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        if ((active = tasks.poll()) != null) {
+            try {
+                delegate.execute(active);
+            } catch (RejectedExecutionException e) {
+                tasks.addFirst(active);
+                active = null;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package game;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import model.Clue;
+import data.GameStore;
+
+/**
+ * Runs many independent investigations without a GUI.
+ *
+ * Every session shares the read-only case content (story, clues and suspects) and
+ * keeps its own progress in an {@link InvestigationSession}. A session keeps the case
+ * it was started with, even if a {@link CaseReloader} swaps in new content later. Each session's actions run
+ * in order on its own serial executor, multiplexed over a shared worker pool, so
+ * sessions never block one another and need no global locks.
+ */
+public class SessionEngine implements AutoCloseable {
+    // Supplies the case logic for each new session.
+    private final Supplier<GameLogic> caseSupplier;
+    private final ExecutorService workers;
+    private final Map<String, InvestigationSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an engine with one worker thread per available processor.
+     *
+     * @param gameLogic The case logic each session's own logic is copied from.
+     */
+    public SessionEngine(GameLogic gameLogic) {
+        this(gameLogic, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param gameLogic The case logic each session's own logic is copied from; sessions share its
+     *                  case and store but keep their own unlock progress.
+     * @param threads   Number of worker threads shared by all sessions.
+     */
+    public SessionEngine(GameLogic gameLogic, int threads) {
+        this(gameLogic::newSession, threads);
+    }
+
+    /**
+     * Creates an engine whose new sessions always start from the reloader's latest snapshot.
+     *
+     * @param reloader  The source of case snapshots.
+     * @param store     The store shared by all sessions.
+     * @param threads   Number of worker threads shared by all sessions.
+     */
+    public SessionEngine(CaseReloader reloader, GameStore store, int threads) {
+        this(() -> new GameLogic(reloader.getSnapshot(), store), threads);
+    }
+
+    private SessionEngine(Supplier<GameLogic> caseSupplier, int threads) {
+        this.caseSupplier = caseSupplier;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "session-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts a new investigation.
+     *
+     * @param playerName The player's name.
+     * @return The new session.
+     */
+    public InvestigationSession createSession(String playerName) {
+        String id = UUID.randomUUID().toString();
+        GameLogic logic = caseSupplier.get();
+        InvestigationSession session = new InvestigationSession(id, playerName, logic,
+                new SerialExecutor(workers), new SessionProgress(logic.getSnapshot()));
+        sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * Starts a session that continues a player's saved investigation, or a fresh one if the
+     * player has nothing saved.
+     *
+     * @param playerName The player's name.
+     * @return The resumed session.
+     * @throws IOException If the saved progress is corrupt or belongs to a different case.
+     */
+    public InvestigationSession resumeSession(String playerName) throws IOException {
+        GameLogic logic = caseSupplier.get();
+        List<byte[]> checkpoints = logic.getStore().loadSessionCheckpoints(playerName);
+        SessionProgress progress = SessionProgress.restore(logic.getSnapshot(), checkpoints);
+        progress.replayInto(logic.getUnlockState());
+        String id = UUID.randomUUID().toString();
+        InvestigationSession session = new InvestigationSession(id, playerName, logic,
+                new SerialExecutor(workers), progress);
+        sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * Saves a session's progress as a checkpoint: usually a small delta of what changed since
+     * the last save, occasionally a full snapshot. Does nothing if nothing changed.
+     *
+     * @return Completes once the checkpoint is stored.
+     */
+    public CompletableFuture<Void> saveSession(String sessionId) {
+        InvestigationSession session = requireSession(sessionId);
+        return CompletableFuture.runAsync(() -> {
+            SessionProgress progress = session.getProgress();
+            if (progress.hasChanges()) {
+                SessionProgress.Checkpoint checkpoint = progress.checkpoint();
+                session.getGameLogic().getStore().saveSessionCheckpoint(
+                        session.getPlayerName(), checkpoint.isFull(), checkpoint.getData());
+            }
+        }, session.getExecutor());
+    }
+
+    public InvestigationSession getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public Collection<InvestigationSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * Ends a session and forgets its state.
+     */
+    public void endSession(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * Asks a suspect a question within a session.
+     *
+     * @see GameLogic#askQuestion(String, String, String)
+     */
+    public CompletableFuture<String> askQuestion(String sessionId, String suspectName, String context, String question) {
+        InvestigationSession session = requireSession(sessionId);
+        return CompletableFuture.supplyAsync(() -> {
+            GameLogic logic = session.getGameLogic();
+            QuestionMatcher.Match match = logic.matchQuestion(suspectName, context, question);
+            String response = logic.answer(suspectName, question, match);
+            // A typed question counts as the dialogue question it matched.
+            if (match != null) {
+                session.recordQuestion(suspectName, match.getContext(), match.getQuestion());
+            } else {
+                session.recordQuestion(suspectName, context, question);
+            }
+            return response;
+        }, session.getExecutor());
+    }
+
+    /**
+     * Retrieves the clues unlocked within a session and marks them as viewed.
+     *
+     * @see GameLogic#viewClues()
+     */
+    public CompletableFuture<List<Clue>> getClues(String sessionId) {
+        InvestigationSession session = requireSession(sessionId);
+        return CompletableFuture.supplyAsync(() -> {
+            List<Clue> clues = session.getGameLogic().viewClues();
+            session.recordCluesViewed();
+            return clues;
+        }, session.getExecutor());
+    }
+
+    /**
+     * Evaluates an accusation within a session.
+     *
+     * @see GameLogic#makeAccusation(String)
+     */
+    public CompletableFuture<String> makeAccusation(String sessionId, String accusedSuspect) {
+        InvestigationSession session = requireSession(sessionId);
+        return CompletableFuture.supplyAsync(() -> {
+            // Evaluated once, so the progress records the outcome the player is shown.
+            GameLogic.Accusation accusation = session.getGameLogic().accuse(accusedSuspect);
+            session.recordAccusation(accusedSuspect, accusation.isCorrect());
+            return accusation.getMessage();
+        }, session.getExecutor());
+    }
+
+    private InvestigationSession requireSession(String sessionId) {
+        InvestigationSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new IllegalArgumentException("No such session: " + sessionId);
+        }
+        return session;
+    }
+
+    /**
+     * Stops the worker threads after running the tasks already submitted.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.DialogueGraph;
+import model.Suspect;
+
+/**
+ * One player's progress through a case, with a compact binary snapshot format.
+ *
+ * Progress is kept as case-relative ids: a bitset of the clues seen, and per suspect a bitset
+ * of the dialogue question ids asked (a question id also identifies its context), plus the
+ * list of accusations. {@link #checkpoint()} encodes either a full snapshot or a delta holding
+ * only what changed since the previous checkpoint, so the cost of saving does not grow with the
+ * length of the investigation. A new full snapshot is taken once the deltas since the last one
+ * add up to more than its size, which bounds how much a restore has to read.
+ *
+ * Record layout: kind ('F' full or 'D' delta), version, case fingerprint (int), sequence, then
+ * the clue, question and accusation sections; every count and id is a varint. Full records
+ * store bitsets as words, deltas store the new ids.
+ */
+public final class SessionProgress {
+    private static final byte FULL = 'F';
+    private static final byte DELTA = 'D';
+    private static final byte VERSION = 1;
+
+    private final CaseSnapshot snapshot;
+    private final List<Suspect> suspects;
+    private final Map<String, Integer> suspectIds = new HashMap<>();
+    private final int fingerprint;
+
+    private final BitSet cluesSeen = new BitSet();
+    private final BitSet[] questionsAsked;
+    private int questionCount;
+    // Accused suspect ids, or -1 for a name that is not a suspect; names kept for those.
+    private final List<Integer> accusedIds = new ArrayList<>();
+    private final List<String> accusedNames = new ArrayList<>();
+    private final List<Boolean> accusationResults = new ArrayList<>();
+
+    // Changes since the last checkpoint.
+    private final BitSet newClues = new BitSet();
+    private final List<int[]> newQuestions = new ArrayList<>();
+    private int questionCountAtCheckpoint;
+    private int accusationsAtCheckpoint;
+
+    private int sequence;
+    private long lastFullSize = -1;
+    private long deltaBytesSinceFull;
+
+    /**
+     * A checkpoint record ready to be stored.
+     */
+    public static final class Checkpoint {
+        private final boolean full;
+        private final int sequence;
+        private final byte[] data;
+
+        Checkpoint(boolean full, int sequence, byte[] data) {
+            this.full = full;
+            this.sequence = sequence;
+            this.data = data;
+        }
+
+        /**
+         * @return Whether this is a full snapshot; earlier checkpoints are then no longer needed.
+         */
+        public boolean isFull() {
+            return full;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Starts empty progress for a case.
+     */
+    public SessionProgress(CaseSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.suspects = new ArrayList<>(snapshot.getSuspects());
+        this.questionsAsked = new BitSet[suspects.size()];
+        int hash = snapshot.getClues().size();
+        for (int id = 0; id < suspects.size(); id++) {
+            Suspect suspect = suspects.get(id);
+            suspectIds.put(normalize(suspect.getName()), id);
+            questionsAsked[id] = new BitSet();
+            hash = 31 * hash + suspect.getName().hashCode();
+            hash = 31 * hash + suspect.getDialogueGraph().getQuestionCount();
+        }
+        this.fingerprint = hash;
+    }
+
+    public CaseSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Marks a clue as seen.
+     *
+     * @param clueIndex The clue's position in the case's clue list.
+     */
+    public synchronized void markClueSeen(int clueIndex) {
+        if (!cluesSeen.get(clueIndex)) {
+            cluesSeen.set(clueIndex);
+            newClues.set(clueIndex);
+        }
+    }
+
+    /**
+     * Marks every clue of the case as seen.
+     */
+    public synchronized void markAllCluesSeen() {
+        int count = snapshot.getClues().size();
+        BitSet unseen = new BitSet();
+        unseen.set(0, count);
+        unseen.andNot(cluesSeen);
+        cluesSeen.or(unseen);
+        newClues.or(unseen);
+    }
+
+    /**
+     * Replays the clues seen and questions asked into a session's unlock state, e.g. after a restore.
+     */
+    public synchronized void replayInto(UnlockState unlocks) {
+        for (int i = cluesSeen.nextSetBit(0); i >= 0; i = cluesSeen.nextSetBit(i + 1)) {
+            unlocks.clueSeen(i);
+        }
+        for (int id = 0; id < suspects.size(); id++) {
+            String name = suspects.get(id).getName();
+            BitSet asked = questionsAsked[id];
+            for (int q = asked.nextSetBit(0); q >= 0; q = asked.nextSetBit(q + 1)) {
+                unlocks.questionAsked(name, q);
+            }
+        }
+    }
+
+    /**
+     * Records a question put to a suspect. Questions the suspect's dialogue does not contain
+     * are only counted.
+     */
+    public synchronized void recordQuestion(String suspectName, String context, String question) {
+        questionCount++;
+        Integer id = suspectIds.get(normalize(suspectName));
+        if (id == null) {
+            return;
+        }
+        DialogueGraph graph = suspects.get(id).getDialogueGraph();
+        int questionId = graph.questionId(graph.contextId(context), question);
+        if (questionId != DialogueGraph.NONE && !questionsAsked[id].get(questionId)) {
+            questionsAsked[id].set(questionId);
+            newQuestions.add(new int[] {id, questionId});
+        }
+    }
+
+    /**
+     * Records an accusation and whether it was correct.
+     */
+    public synchronized void recordAccusation(String accusedSuspect, boolean correct) {
+        Integer id = suspectIds.get(normalize(accusedSuspect));
+        accusedIds.add(id == null ? -1 : id);
+        accusedNames.add(accusedSuspect);
+        accusationResults.add(correct);
+    }
+
+    public synchronized boolean isClueSeen(int clueIndex) {
+        return cluesSeen.get(clueIndex);
+    }
+
+    public synchronized int getCluesSeenCount() {
+        return cluesSeen.cardinality();
+    }
+
+    /**
+     * @return The number of questions asked, including repeats.
+     */
+    public synchronized int getQuestionCount() {
+        return questionCount;
+    }
+
+    /**
+     * @return Whether the question was asked in the given context.
+     */
+    public synchronized boolean wasAsked(String suspectName, String context, String question) {
+        Integer id = suspectIds.get(normalize(suspectName));
+        if (id == null) {
+            return false;
+        }
+        DialogueGraph graph = suspects.get(id).getDialogueGraph();
+        int questionId = graph.questionId(graph.contextId(context), question);
+        return questionId != DialogueGraph.NONE && questionsAsked[id].get(questionId);
+    }
+
+    /**
+     * @return The suspects asked at least one known question, in case order.
+     */
+    public synchronized List<String> getQuestionedSuspects() {
+        List<String> names = new ArrayList<>();
+        for (int id = 0; id < suspects.size(); id++) {
+            if (!questionsAsked[id].isEmpty()) {
+                names.add(suspects.get(id).getName());
+            }
+        }
+        return names;
+    }
+
+    public synchronized List<String> getAccusations() {
+        return Collections.unmodifiableList(new ArrayList<>(accusedNames));
+    }
+
+    public synchronized boolean isSolved() {
+        return accusationResults.contains(Boolean.TRUE);
+    }
+
+    /**
+     * @return Whether anything changed since the last checkpoint.
+     */
+    public synchronized boolean hasChanges() {
+        return !newClues.isEmpty() || !newQuestions.isEmpty()
+                || questionCount != questionCountAtCheckpoint || accusedIds.size() != accusationsAtCheckpoint;
+    }
+
+    /**
+     * Encodes the next checkpoint: a delta of the changes since the previous one, or a full
+     * snapshot if there is none yet or the deltas have grown larger than a snapshot.
+     */
+    public synchronized Checkpoint checkpoint() {
+        if (lastFullSize < 0 || deltaBytesSinceFull > lastFullSize) {
+            return fullSnapshot();
+        }
+        Writer out = new Writer(DELTA, fingerprint, ++sequence);
+        int[] clueIds = newClues.stream().toArray();
+        out.varint(clueIds.length);
+        int previous = 0;
+        for (int clue : clueIds) {
+            // Gaps between sorted ids are small, so they encode in fewer bytes than the ids.
+            out.varint(clue - previous);
+            previous = clue;
+        }
+        out.varint(newQuestions.size());
+        for (int[] asked : newQuestions) {
+            out.varint(asked[0]);
+            out.varint(asked[1]);
+        }
+        out.varint(questionCount - questionCountAtCheckpoint);
+        writeAccusations(out, accusationsAtCheckpoint);
+        byte[] data = out.toByteArray();
+        deltaBytesSinceFull += data.length;
+        markCheckpointed();
+        return new Checkpoint(false, sequence, data);
+    }
+
+    /**
+     * Encodes the whole progress as a full snapshot.
+     */
+    public synchronized Checkpoint fullSnapshot() {
+        Writer out = new Writer(FULL, fingerprint, ++sequence);
+        out.words(cluesSeen.toLongArray());
+        int questioned = 0;
+        for (BitSet asked : questionsAsked) {
+            if (!asked.isEmpty()) {
+                questioned++;
+            }
+        }
+        out.varint(questioned);
+        for (int id = 0; id < questionsAsked.length; id++) {
+            if (!questionsAsked[id].isEmpty()) {
+                out.varint(id);
+                out.words(questionsAsked[id].toLongArray());
+            }
+        }
+        out.varint(questionCount);
+        writeAccusations(out, 0);
+        byte[] data = out.toByteArray();
+        lastFullSize = data.length;
+        deltaBytesSinceFull = 0;
+        markCheckpointed();
+        return new Checkpoint(true, sequence, data);
+    }
+
+    private void writeAccusations(Writer out, int from) {
+        out.varint(accusedIds.size() - from);
+        for (int i = from; i < accusedIds.size(); i++) {
+            int id = accusedIds.get(i);
+            // 0 means the accused is not a suspect and the name follows.
+            out.varint(id + 1);
+            if (id < 0) {
+                out.string(accusedNames.get(i));
+            }
+            out.flag(accusationResults.get(i));
+        }
+    }
+
+    private void markCheckpointed() {
+        newClues.clear();
+        newQuestions.clear();
+        questionCountAtCheckpoint = questionCount;
+        accusationsAtCheckpoint = accusedIds.size();
+    }
+
+    /**
+     * Rebuilds progress from checkpoint records in the order they were written. Records before
+     * the last full snapshot are skipped.
+     *
+     * @param snapshot The case the progress belongs to.
+     * @param records  The checkpoint data, oldest first.
+     * @return The restored progress.
+     * @throws IOException If a record is corrupt, out of order or from a different case.
+     */
+    public static SessionProgress restore(CaseSnapshot snapshot, List<byte[]> records) throws IOException {
+        SessionProgress progress = new SessionProgress(snapshot);
+        int start = -1;
+        for (int i = records.size() - 1; i >= 0 && start < 0; i--) {
+            if (records.get(i).length > 0 && records.get(i)[0] == FULL) {
+                start = i;
+            }
+        }
+        if (start < 0) {
+            if (!records.isEmpty()) {
+                throw new IOException("No full snapshot among the session checkpoints");
+            }
+            return progress;
+        }
+        try {
+            for (int i = start; i < records.size(); i++) {
+                progress.apply(ByteBuffer.wrap(records.get(i)), i == start);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt session checkpoint", e);
+        }
+        progress.markCheckpointed();
+        return progress;
+    }
+
+    private void apply(ByteBuffer in, boolean expectFull) throws IOException {
+        byte kind = in.get();
+        if (kind != (expectFull ? FULL : DELTA) || in.get() != VERSION) {
+            throw new IOException("Unexpected session checkpoint record");
+        }
+        if (in.getInt() != fingerprint) {
+            throw new IOException("Session checkpoint belongs to a different case");
+        }
+        int recordSequence = readVarint(in);
+        if (!expectFull && recordSequence != sequence + 1) {
+            throw new IOException("Missing session checkpoint before " + recordSequence);
+        }
+        sequence = recordSequence;
+        if (kind == FULL) {
+            cluesSeen.or(BitSet.valueOf(readWords(in)));
+            int questioned = readVarint(in);
+            for (int i = 0; i < questioned; i++) {
+                int id = readVarint(in);
+                questionsAsked[id].or(BitSet.valueOf(readWords(in)));
+            }
+            questionCount = readVarint(in);
+            lastFullSize = in.limit();
+            deltaBytesSinceFull = 0;
+        } else {
+            int clues = readVarint(in);
+            int clue = 0;
+            for (int i = 0; i < clues; i++) {
+                clue += readVarint(in);
+                cluesSeen.set(clue);
+            }
+            int questions = readVarint(in);
+            for (int i = 0; i < questions; i++) {
+                int id = readVarint(in);
+                questionsAsked[id].set(readVarint(in));
+            }
+            questionCount += readVarint(in);
+            deltaBytesSinceFull += in.limit();
+        }
+        int accusations = readVarint(in);
+        for (int i = 0; i < accusations; i++) {
+            int id = readVarint(in) - 1;
+            String name = id < 0 ? readString(in) : suspects.get(id).getName();
+            accusedIds.add(id);
+            accusedNames.add(name);
+            accusationResults.add(in.get() != 0);
+        }
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long[] readWords(ByteBuffer in) {
+        long[] words = new long[readVarint(in)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.getLong();
+        }
+        return words;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Builds one record.
+     */
+    private static final class Writer {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+        Writer(byte kind, int fingerprint, int sequence) {
+            out.write(kind);
+            out.write(VERSION);
+            out.write(fingerprint >>> 24);
+            out.write(fingerprint >>> 16);
+            out.write(fingerprint >>> 8);
+            out.write(fingerprint);
+            varint(sequence);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        void words(long[] words) {
+            varint(words.length);
+            for (long word : words) {
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) (word >>> shift));
+                }
+            }
+        }
+
+        void flag(boolean value) {
+            out.write(value ? 1 : 0);
+        }
+
+        void string(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
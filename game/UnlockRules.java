@@ -0,0 +1,394 @@
+package game;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import model.CaseDifficulty;
+import model.Clue;
+import model.DialogueGraph;
+import model.Suspect;
+
+/**
+ * A case's unlock rules, compiled into a dependency graph. Built once per case and shared by
+ * every session; each session tracks its progress in an {@link UnlockState}.
+ *
+ * A rules file has one rule per line, with # comments:
+ * <pre>
+ * clue:4 &lt;- asked:Sipho/Where were you last seen?
+ * clue:5 &lt;- clue:1 &amp; asked:Nomsa/Can you explain your argument with Gogo?
+ * clue:5 &lt;- difficulty:EASY
+ * context:Sipho/Start &lt;- clue:2
+ * </pre>
+ * A target is a clue, numbered from 1 in file order, or a suspect's dialogue context. A condition
+ * is a clue having been seen, a question having been asked of a suspect in any context, or the
+ * game being played at one of the given difficulties ({@code difficulty:EASY/MEDIUM}). The
+ * conditions of a rule must all hold; any one rule of a target unlocks it. Targets without rules
+ * are unlocked from the start.
+ *
+ * Seen clues and asked questions are facts. Each fact lists the rules waiting on it, and each
+ * rule counts how many of its facts hold, so a new fact only visits its own rules: the work per
+ * event does not grow with the number of rules, clues or suspects. Difficulty conditions are
+ * settled when a session starts, not per event.
+ */
+public final class UnlockRules {
+    // The starting count of a rule the difficulty rules out; no number of facts brings it up to its requirement.
+    private static final int DISABLED = Integer.MIN_VALUE;
+
+    private final int clueCount;
+    // Per clue: its target id, or -1 if it has no rules.
+    private final int[] clueTargets;
+    // Per suspect, per context id: its target id, or -1.
+    private final Map<String, int[]> contextTargets;
+    // Per clue: the id of the fact that it was seen, or -1 if no rule waits on it.
+    private final int[] clueFacts;
+    // Per suspect, per question id: the id of the fact that the question was asked, or -1.
+    private final Map<String, int[]> questionFacts;
+    // The rules waiting on fact f are factRules[factStart[f]] to factRules[factStart[f + 1] - 1].
+    private final int[] factStart;
+    private final int[] factRules;
+    private final int[] ruleTargets;
+    // The number of facts each rule waits on.
+    private final int[] ruleRequired;
+    private final int targetCount;
+    private final int factCount;
+    // Per difficulty: each rule's starting count, DISABLED if the difficulty rules it out.
+    private final int[][] initialSatisfied;
+    // Per difficulty: the targets unlocked before anything happens.
+    private final BitSet[] initialUnlocked;
+
+    private UnlockRules(Builder builder) {
+        this.clueCount = builder.clueTargets.length;
+        this.clueTargets = builder.clueTargets;
+        this.contextTargets = builder.contextTargets;
+        this.clueFacts = builder.clueFacts;
+        this.questionFacts = builder.questionFacts;
+        this.targetCount = builder.targetCount;
+        this.factCount = builder.factCount;
+        int ruleCount = builder.rules.size();
+        this.ruleTargets = new int[ruleCount];
+        this.ruleRequired = new int[ruleCount];
+        // Lay the fact -> rule edges out flat: count, prefix-sum, fill.
+        this.factStart = new int[factCount + 1];
+        for (Builder.Rule rule : builder.rules) {
+            for (int fact : rule.facts) {
+                factStart[fact + 1]++;
+            }
+        }
+        for (int f = 0; f < factCount; f++) {
+            factStart[f + 1] += factStart[f];
+        }
+        this.factRules = new int[factStart[factCount]];
+        int[] filled = Arrays.copyOf(factStart, factCount);
+        for (int r = 0; r < ruleCount; r++) {
+            Builder.Rule rule = builder.rules.get(r);
+            ruleTargets[r] = rule.target;
+            ruleRequired[r] = rule.facts.length;
+            for (int fact : rule.facts) {
+                factRules[filled[fact]++] = r;
+            }
+        }
+        CaseDifficulty[] difficulties = CaseDifficulty.values();
+        this.initialSatisfied = new int[difficulties.length][];
+        this.initialUnlocked = new BitSet[difficulties.length];
+        for (CaseDifficulty difficulty : difficulties) {
+            int d = difficulty.ordinal();
+            int[] satisfied = new int[ruleCount];
+            BitSet unlocked = new BitSet(targetCount);
+            for (int r = 0; r < ruleCount; r++) {
+                if ((builder.rules.get(r).difficulties & (1 << d)) == 0) {
+                    satisfied[r] = DISABLED;
+                } else if (ruleRequired[r] == 0) {
+                    unlocked.set(ruleTargets[r]);
+                }
+            }
+            initialSatisfied[d] = satisfied;
+            initialUnlocked[d] = unlocked;
+        }
+    }
+
+    /**
+     * Compiles rules against a case's clues and suspects.
+     *
+     * @param lines    The rules, one per line.
+     * @param clues    The case's clues, in file order.
+     * @param suspects The case's suspects by name.
+     * @return The compiled rules.
+     * @throws IllegalArgumentException If a line is malformed or names a clue, suspect, context,
+     *                                  question or difficulty the case does not have.
+     */
+    public static UnlockRules compile(List<String> lines, List<Clue> clues, Map<String, Suspect> suspects) {
+        Builder builder = new Builder(clues.size(), suspects);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                builder.addRule(line);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unlock rule on line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new UnlockRules(builder);
+    }
+
+    /**
+     * Compiles the rules in a file.
+     *
+     * @see #compile(List, List, Map)
+     */
+    public static UnlockRules load(Path file, List<Clue> clues, Map<String, Suspect> suspects) throws IOException {
+        return compile(Files.readAllLines(file, StandardCharsets.UTF_8), clues, suspects);
+    }
+
+    /**
+     * @return Rules that lock nothing, for a case without a rules file.
+     */
+    public static UnlockRules none(List<Clue> clues, Map<String, Suspect> suspects) {
+        return compile(Collections.emptyList(), clues, suspects);
+    }
+
+    /**
+     * @return A new session's unlock state at a difficulty.
+     */
+    public UnlockState newState(CaseDifficulty difficulty) {
+        return new UnlockState(this, difficulty);
+    }
+
+    /**
+     * @return The number of rules.
+     */
+    public int getRuleCount() {
+        return ruleTargets.length;
+    }
+
+    int getClueCount() {
+        return clueCount;
+    }
+
+    int getFactCount() {
+        return factCount;
+    }
+
+    int getTargetCount() {
+        return targetCount;
+    }
+
+    int clueTarget(int clueIndex) {
+        return clueIndex < clueTargets.length ? clueTargets[clueIndex] : -1;
+    }
+
+    int contextTarget(String suspectName, int contextId) {
+        int[] targets = contextTargets.get(suspectName);
+        return targets == null || contextId < 0 || contextId >= targets.length ? -1 : targets[contextId];
+    }
+
+    int clueFact(int clueIndex) {
+        return clueIndex < clueFacts.length ? clueFacts[clueIndex] : -1;
+    }
+
+    int questionFact(String suspectName, int questionId) {
+        int[] facts = questionFacts.get(suspectName);
+        return facts == null || questionId < 0 || questionId >= facts.length ? -1 : facts[questionId];
+    }
+
+    int ruleStart(int fact) {
+        return factStart[fact];
+    }
+
+    int ruleEnd(int fact) {
+        return factStart[fact + 1];
+    }
+
+    int ruleAt(int edge) {
+        return factRules[edge];
+    }
+
+    int ruleTarget(int rule) {
+        return ruleTargets[rule];
+    }
+
+    int ruleRequired(int rule) {
+        return ruleRequired[rule];
+    }
+
+    int[] initialSatisfied(CaseDifficulty difficulty) {
+        return initialSatisfied[difficulty.ordinal()].clone();
+    }
+
+    BitSet initialUnlocked(CaseDifficulty difficulty) {
+        return (BitSet) initialUnlocked[difficulty.ordinal()].clone();
+    }
+
+    /**
+     * Parses rules and numbers the targets and facts they mention.
+     */
+    private static final class Builder {
+        static final class Rule {
+            final int target;
+            final int[] facts;
+            // Bit d is set if the rule applies at the difficulty of ordinal d.
+            final int difficulties;
+
+            Rule(int target, int[] facts, int difficulties) {
+                this.target = target;
+                this.facts = facts;
+                this.difficulties = difficulties;
+            }
+        }
+
+        final Map<String, Suspect> suspects;
+        final int[] clueTargets;
+        final int[] clueFacts;
+        final Map<String, int[]> contextTargets = new HashMap<>();
+        final Map<String, int[]> questionFacts = new HashMap<>();
+        final List<Rule> rules = new ArrayList<>();
+        int targetCount;
+        int factCount;
+
+        Builder(int clueCount, Map<String, Suspect> suspects) {
+            this.suspects = suspects;
+            this.clueTargets = new int[clueCount];
+            this.clueFacts = new int[clueCount];
+            Arrays.fill(clueTargets, -1);
+            Arrays.fill(clueFacts, -1);
+        }
+
+        void addRule(String line) {
+            int arrow = line.indexOf("<-");
+            if (arrow < 0) {
+                throw new IllegalArgumentException("expected '<target> <- <condition> & ...': " + line);
+            }
+            int target = target(line.substring(0, arrow).trim());
+            // Duplicate conditions count once, so a rule needs each distinct fact once.
+            Set<Integer> facts = new LinkedHashSet<>();
+            int difficulties = (1 << CaseDifficulty.values().length) - 1;
+            String conditions = line.substring(arrow + 2).trim();
+            if (!conditions.isEmpty()) {
+                for (String condition : conditions.split("&")) {
+                    condition = condition.trim();
+                    if (condition.startsWith("difficulty:")) {
+                        difficulties &= difficulties(condition.substring("difficulty:".length()));
+                    } else {
+                        facts.add(fact(condition));
+                    }
+                }
+            }
+            int[] factIds = facts.stream().mapToInt(Integer::intValue).toArray();
+            rules.add(new Rule(target, factIds, difficulties));
+        }
+
+        int target(String text) {
+            if (text.startsWith("clue:")) {
+                int index = clueIndex(text.substring("clue:".length()));
+                if (clueTargets[index] < 0) {
+                    clueTargets[index] = targetCount++;
+                }
+                return clueTargets[index];
+            }
+            if (text.startsWith("context:")) {
+                String[] parts = suspectAndRest(text.substring("context:".length()));
+                DialogueGraph graph = suspects.get(parts[0]).getDialogueGraph();
+                int context = graph.contextId(parts[1]);
+                if (context == DialogueGraph.NONE) {
+                    throw new IllegalArgumentException(parts[0] + " has no context '" + parts[1] + "'");
+                }
+                int[] targets = contextTargets.computeIfAbsent(parts[0], name -> filled(graph.getContextCount()));
+                if (targets[context] < 0) {
+                    targets[context] = targetCount++;
+                }
+                return targets[context];
+            }
+            throw new IllegalArgumentException("unknown target '" + text + "'");
+        }
+
+        int fact(String text) {
+            if (text.startsWith("clue:")) {
+                int index = clueIndex(text.substring("clue:".length()));
+                if (clueFacts[index] < 0) {
+                    clueFacts[index] = factCount++;
+                }
+                return clueFacts[index];
+            }
+            if (text.startsWith("asked:")) {
+                String[] parts = suspectAndRest(text.substring("asked:".length()));
+                DialogueGraph graph = suspects.get(parts[0]).getDialogueGraph();
+                int[] facts = questionFacts.computeIfAbsent(parts[0], name -> filled(graph.getQuestionCount()));
+                // The same question may appear in several contexts; asking it in any one counts.
+                int fact = -1;
+                for (int q = 0; q < graph.getQuestionCount(); q++) {
+                    if (graph.question(q).equals(parts[1])) {
+                        if (fact < 0) {
+                            fact = facts[q] >= 0 ? facts[q] : factCount++;
+                        }
+                        facts[q] = fact;
+                    }
+                }
+                if (fact < 0) {
+                    throw new IllegalArgumentException(parts[0] + " has no question '" + parts[1] + "'");
+                }
+                return fact;
+            }
+            throw new IllegalArgumentException("unknown condition '" + text + "'");
+        }
+
+        int clueIndex(String number) {
+            int index;
+            try {
+                index = Integer.parseInt(number.trim()) - 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a clue number: '" + number + "'");
+            }
+            if (index < 0 || index >= clueTargets.length) {
+                throw new IllegalArgumentException("no clue " + number.trim() + "; the case has " + clueTargets.length);
+            }
+            return index;
+        }
+
+        String[] suspectAndRest(String text) {
+            int slash = text.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("expected '<suspect>/<text>': " + text);
+            }
+            String suspect = text.substring(0, slash).trim();
+            if (!suspects.containsKey(suspect)) {
+                throw new IllegalArgumentException("unknown suspect '" + suspect + "'");
+            }
+            return new String[] {suspect, text.substring(slash + 1).trim()};
+        }
+
+        static int difficulties(String text) {
+            int mask = 0;
+            for (String level : text.split("/")) {
+                try {
+                    mask |= 1 << CaseDifficulty.valueOf(level.trim().toUpperCase(Locale.ROOT)).ordinal();
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("unknown difficulty '" + level.trim() + "'");
+                }
+            }
+            return mask;
+        }
+
+        static int[] filled(int length) {
+            int[] ids = new int[length];
+            Arrays.fill(ids, -1);
+            return ids;
+        }
+    }
+}
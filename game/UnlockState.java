@@ -0,0 +1,108 @@
+package game;
+
+import java.util.BitSet;
+import model.CaseDifficulty;
+
+/**
+ * One session's progress through a case's {@link UnlockRules}: which facts hold, how many facts
+ * of each rule hold, and which clues and dialogue contexts are unlocked.
+ *
+ * A fact that becomes true adds one to each rule waiting on it, and a rule that reaches its
+ * requirement unlocks its target; nothing else is looked at. Unlocking never makes a new fact
+ * true by itself (a clue counts as seen only once the player views it), so an event never
+ * cascades. Safe to call from several threads.
+ */
+public final class UnlockState {
+    private final UnlockRules rules;
+    private final CaseDifficulty difficulty;
+    // Per rule: how many of its facts hold.
+    private final int[] satisfied;
+    private final BitSet facts;
+    private final BitSet unlocked;
+    // Clues already viewed, including those no rule waits on.
+    private final BitSet seenClues;
+
+    UnlockState(UnlockRules rules, CaseDifficulty difficulty) {
+        this.rules = rules;
+        this.difficulty = difficulty;
+        this.satisfied = rules.initialSatisfied(difficulty);
+        this.facts = new BitSet(rules.getFactCount());
+        this.unlocked = rules.initialUnlocked(difficulty);
+        this.seenClues = new BitSet(rules.getClueCount());
+    }
+
+    public CaseDifficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * @return The same progress at another difficulty: the facts so far are replayed against the
+     * rules that apply there.
+     */
+    public synchronized UnlockState withDifficulty(CaseDifficulty difficulty) {
+        UnlockState state = new UnlockState(rules, difficulty);
+        for (int fact = facts.nextSetBit(0); fact >= 0; fact = facts.nextSetBit(fact + 1)) {
+            state.fire(fact);
+        }
+        state.seenClues.or(seenClues);
+        return state;
+    }
+
+    public synchronized boolean isClueUnlocked(int clueIndex) {
+        int target = rules.clueTarget(clueIndex);
+        return target < 0 || unlocked.get(target);
+    }
+
+    public synchronized boolean isContextUnlocked(String suspectName, int contextId) {
+        int target = rules.contextTarget(suspectName, contextId);
+        return target < 0 || unlocked.get(target);
+    }
+
+    public synchronized boolean isClueSeen(int clueIndex) {
+        return seenClues.get(clueIndex);
+    }
+
+    /**
+     * Records that the player viewed a clue.
+     *
+     * @return The number of clues and contexts this unlocked.
+     */
+    public synchronized int clueSeen(int clueIndex) {
+        if (seenClues.get(clueIndex)) {
+            return 0;
+        }
+        seenClues.set(clueIndex);
+        int fact = rules.clueFact(clueIndex);
+        return fact < 0 ? 0 : fire(fact);
+    }
+
+    /**
+     * Records that a question of the suspect's dialogue was asked.
+     *
+     * @param questionId The question's id in the suspect's dialogue graph.
+     * @return The number of clues and contexts this unlocked.
+     */
+    public synchronized int questionAsked(String suspectName, int questionId) {
+        int fact = rules.questionFact(suspectName, questionId);
+        return fact < 0 ? 0 : fire(fact);
+    }
+
+    private int fire(int fact) {
+        if (facts.get(fact)) {
+            return 0;
+        }
+        facts.set(fact);
+        int newlyUnlocked = 0;
+        for (int edge = rules.ruleStart(fact), end = rules.ruleEnd(fact); edge < end; edge++) {
+            int rule = rules.ruleAt(edge);
+            if (++satisfied[rule] == rules.ruleRequired(rule)) {
+                int target = rules.ruleTarget(rule);
+                if (!unlocked.get(target)) {
+                    unlocked.set(target);
+                    newlyUnlocked++;
+                }
+            }
+        }
+        return newlyUnlocked;
+    }
+}
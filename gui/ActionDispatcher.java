@@ -0,0 +1,76 @@
+package gui;
+
+import javax.swing.AbstractButton;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import java.awt.Component;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import metrics.Metrics;
+
+/**
+ * Runs the slow part of a button action off the Event Dispatch Thread.
+ *
+ * The button is disabled while its action is in flight, so repeated clicks are refused rather
+ * than queued. The task runs on a background executor and its result is handed back to the EDT,
+ * where the button is enabled again and the UI is updated.
+ */
+public class ActionDispatcher {
+    private final ExecutorService executor;
+    private final Component parent;
+
+    /**
+     * @param parent The component error dialogs are shown over.
+     */
+    public ActionDispatcher(Component parent) {
+        this.parent = parent;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "action-dispatch-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Runs a task in the background on behalf of a button. Must be called on the EDT.
+     *
+     * @param source    The button that triggered the action; disabled until the task completes.
+     * @param task      The work to run off the EDT.
+     * @param onSuccess Receives the task's result on the EDT.
+     * @return false if the button's previous action is still in flight.
+     */
+    public <T> boolean dispatch(AbstractButton source, Callable<T> task, Consumer<T> onSuccess) {
+        if (!source.isEnabled()) {
+            return false;
+        }
+        source.setEnabled(false);
+        executor.execute(() -> {
+            try {
+                T result = task.call();
+                SwingUtilities.invokeLater(() -> {
+                    source.setEnabled(true);
+                    onSuccess.accept(result);
+                });
+            } catch (Exception e) {
+                Metrics.recordError("gui.action", e);
+                SwingUtilities.invokeLater(() -> {
+                    source.setEnabled(true);
+                    JOptionPane.showMessageDialog(parent, "Action failed: " + e.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stops accepting actions; tasks already started still finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,113 @@
+package gui;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Detects when the Event Dispatch Thread stops processing events.
+ *
+ * A background thread regularly posts a heartbeat to the EDT. If a heartbeat has not run after
+ * the threshold, the EDT is considered stalled and its current stack is reported once, showing
+ * what is blocking it. When the EDT recovers, the total stall time is reported as well.
+ * The heartbeats keep AWT from shutting down on its own, so call {@link #stop()} when done.
+ */
+public class EdtWatchdog {
+    private final long thresholdNanos;
+    private final long checkIntervalMillis;
+    private final Consumer<String> reporter;
+    private volatile Thread edt;
+    // System.nanoTime() of the last heartbeat that ran on the EDT.
+    private volatile long lastBeat;
+    private volatile boolean beatPending;
+    private Thread thread;
+
+    /**
+     * Reports stalls on System.err.
+     *
+     * @param thresholdMillis How long the EDT may be unresponsive before a stall is reported.
+     */
+    public EdtWatchdog(long thresholdMillis) {
+        this(thresholdMillis, System.err::println);
+    }
+
+    /**
+     * @param thresholdMillis How long the EDT may be unresponsive before a stall is reported.
+     * @param reporter        Receives the stall reports.
+     */
+    public EdtWatchdog(long thresholdMillis, Consumer<String> reporter) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.checkIntervalMillis = Math.max(10, thresholdMillis / 4);
+        this.reporter = reporter;
+    }
+
+    /**
+     * Starts watching.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        lastBeat = System.nanoTime();
+        SwingUtilities.invokeLater(() -> edt = Thread.currentThread());
+        thread = new Thread(this::watch, "edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching.
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void watch() {
+        boolean stalled = false;
+        long stallStart = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!beatPending) {
+                    beatPending = true;
+                    SwingUtilities.invokeLater(() -> {
+                        // The EDT can be replaced after an uncaught exception, so refresh it each beat.
+                        edt = Thread.currentThread();
+                        lastBeat = System.nanoTime();
+                        beatPending = false;
+                    });
+                }
+                Thread.sleep(checkIntervalMillis);
+
+                long now = System.nanoTime();
+                boolean late = beatPending && now - lastBeat > thresholdNanos;
+                if (late && !stalled) {
+                    stalled = true;
+                    stallStart = lastBeat;
+                    reporter.accept(describeStall(now - lastBeat));
+                } else if (!late && stalled) {
+                    stalled = false;
+                    reporter.accept("EDT recovered after a stall of about "
+                            + TimeUnit.NANOSECONDS.toMillis(lastBeat - stallStart) + " ms");
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped.
+        }
+    }
+
+    private String describeStall(long elapsedNanos) {
+        StringBuilder report = new StringBuilder("EDT stalled for more than ")
+                .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" ms");
+        Thread current = edt;
+        if (current != null) {
+            report.append("; blocked at:");
+            for (StackTraceElement element : current.getStackTrace()) {
+                report.append("\n\tat ").append(element);
+            }
+        }
+        return report.toString();
+    }
+}
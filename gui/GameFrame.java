@@ -1,22 +1,37 @@
 package gui;
 
+import game.CaseCache;
+import game.CaseCatalog;
+import game.CaseSnapshot;
 import game.GameLogic;
-import data.DatabaseManager;
+import game.QuestionMatcher;
+import data.DeferredStore;
+import data.GameStore;
+import data.InMemoryStore;
 import data.FileManager;
+import data.EventLog;
+import data.InvestigationLogWriter;
+import model.CaseDifficulty;
 import model.Clue;
 import model.Suspect;
+import model.TemplateSet;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import metrics.Metrics;
 
 /**
  * The main game window for "Java Detective".
  * Displays the case narrative, clues, and suspect interactions.
  * Provides controls for starting the case, viewing clues, questioning suspects,
- * making an accusation, and exiting the game.
+ * making an accusation, switching to another case of the catalog, and exiting the game.
  */
 public class GameFrame extends JFrame implements ActionListener {
 
@@ -25,13 +40,49 @@ public class GameFrame extends JFrame implements ActionListener {
     private JButton viewCluesButton;
     private JButton questionSuspectsButton;
     private JButton makeAccusationButton;
+    private JButton switchCaseButton;
     private JButton exitButton;
 
-    // A text area for displaying the case narrative and game responses
-    private JTextArea displayArea;
+    // A virtualized list displaying the case narrative and game responses; output is appended.
+    private OutputListModel output;
+    private JList<String> displayList;
 
-    // The game logic that drives core functionality
-    private GameLogic gameLogic;
+    // The game logic that drives core functionality; replaced on the EDT when the case is switched
+    private volatile GameLogic gameLogic;
+    // Where game progress is recorded, shared by every case played
+    private GameStore store;
+    // The cases of the catalog directory, loaded on demand; completes once the directory is scanned
+    private CompletableFuture<CaseCache> casesScanned;
+
+    // Runs button actions' I/O off the Event Dispatch Thread
+    private ActionDispatcher dispatcher;
+
+    // Structured investigation event log, opened in the background, and this game's session in it
+    private CompletableFuture<EventLog> eventLogOpened;
+    private volatile long sessionId;
+    // The plain-text log, opened only if the event log could not be; completes with null otherwise
+    private CompletableFuture<InvestigationLogWriter> fallbackLogOpened;
+
+    // Loads everything the game needs while the window is already showing
+    private StartupPipeline startup;
+
+    // Overridden with -Djavadet.store=memory or -Djavadet.store=memory:<snapshot file>.
+    private static final String DEFAULT_STORE = "jdbc:sqlite:javadet.db";
+    private static final String EVENT_LOG_DIRECTORY = "src/investigation_events";
+    // Holds templates_<locale>.properties files; the default locale's set is used if present.
+    private static final String TEMPLATE_DIRECTORY = "src/templates";
+    // Overridden with -Djavadet.matchThreshold=<0..1>: how close a typed question must be to a suspect's.
+    private static final String MATCH_THRESHOLD_PROPERTY = "javadet.matchThreshold";
+    // Overridden with -Djavadet.difficulty=EASY|MEDIUM|HARD: which unlock rules apply.
+    private static final String DIFFICULTY_PROPERTY = "javadet.difficulty";
+    // Rules by which clues and dialogue contexts unlock; without the file everything is unlocked.
+    private static final String UNLOCKS_FILE_PATH = "src/unlocks.txt";
+    // Compiled case bundles offered by "Switch Case"; overridden with -Djavadet.cases=<directory>.
+    private static final String CASES_DIRECTORY = "src/cases";
+    // Overridden with -Djavadet.caseCacheMegabytes=<n>: memory for cases kept loaded between switches.
+    private static final long DEFAULT_CASE_CACHE_MEGABYTES = 64;
+    // Plain-text log used only when the event log cannot be opened.
+    private static final String LOG_FILE_PATH = "src/investigation_log.txt";
 
     /**
      * Constructs the main game window.
@@ -43,11 +94,14 @@ public class GameFrame extends JFrame implements ActionListener {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
+        dispatcher = new ActionDispatcher(this);
+
         // Create control buttons.
         startCaseButton = new JButton("Start Case");
         viewCluesButton = new JButton("View Clues");
         questionSuspectsButton = new JButton("Question Suspects");
         makeAccusationButton = new JButton("Make Accusation");
+        switchCaseButton = new JButton("Switch Case");
         exitButton = new JButton("Exit");
 
         // Register ActionListeners for the buttons.
@@ -55,19 +109,26 @@ public class GameFrame extends JFrame implements ActionListener {
         viewCluesButton.addActionListener(this);
         questionSuspectsButton.addActionListener(this);
         makeAccusationButton.addActionListener(this);
+        switchCaseButton.addActionListener(this);
         exitButton.addActionListener(this);
 
-        // Create the display area for showing text information.
-        displayArea = new JTextArea();
-        displayArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(displayArea);
+        // Create the display list for showing text information.
+        // Fixed cell sizes let the list lay out and paint only the visible rows.
+        output = new OutputListModel();
+        displayList = new JList<>(output);
+        displayList.setFont(new JTextArea().getFont());
+        FontMetrics metrics = displayList.getFontMetrics(displayList.getFont());
+        displayList.setFixedCellHeight(metrics.getHeight());
+        displayList.setFixedCellWidth(metrics.charWidth('m') * 200);
+        JScrollPane scrollPane = new JScrollPane(displayList);
 
         // Arrange the buttons in a panel.
-        JPanel buttonPanel = new JPanel(new GridLayout(1, 5));
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 6));
         buttonPanel.add(startCaseButton);
         buttonPanel.add(viewCluesButton);
         buttonPanel.add(questionSuspectsButton);
         buttonPanel.add(makeAccusationButton);
+        buttonPanel.add(switchCaseButton);
         buttonPanel.add(exitButton);
 
         // Set the layout and add components.
@@ -75,10 +136,144 @@ public class GameFrame extends JFrame implements ActionListener {
         add(buttonPanel, BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
 
-        // Initialize the database manager and load game logic.
+        // Show the window in a loading state right away; the game buttons wait for the case.
+        setGameButtonsEnabled(false);
+        output.appendText("Loading case...");
+
+        // Open the store, load the case and templates, and open the event log in parallel.
         // Adjust file paths according to your project structure (e.g., "resources/case1.txt", "resources/clues.txt").
-        DatabaseManager dbManager = new DatabaseManager("jdbc:sqlite:javadet.db");
-        gameLogic = new GameLogic("src/case1.txt", "src/clues.txt", dbManager);
+        // The store is only waited for by the first action that records progress, off the EDT.
+        startup = new StartupPipeline();
+        store = new DeferredStore(startup.stage("store", GameFrame::openStore));
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close));
+        CompletableFuture<CaseSnapshot> caseLoaded = startup.stage("case",
+                () -> CaseSnapshot.load("src/case1.txt", "src/clues.txt", UNLOCKS_FILE_PATH));
+        CompletableFuture<TemplateSet> templatesLoaded = startup.stage("templates",
+                () -> TemplateSet.load(Paths.get(TEMPLATE_DIRECTORY), Locale.getDefault()));
+        // Open the event log once and close it on shutdown.
+        eventLogOpened = startup.stage("eventLog", () -> {
+            EventLog log = new EventLog(EVENT_LOG_DIRECTORY);
+            sessionId = log.startSession("case1");
+            Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+            return log;
+        });
+        fallbackLogOpened = eventLogOpened.handle((log, ex) -> log == null ? openFallbackLog() : null);
+
+        // Only the catalog's metadata is read here; cases load when they are switched to.
+        casesScanned = startup.stage("catalog", () -> new CaseCache(
+                CaseCatalog.scan(Paths.get(System.getProperty("javadet.cases", CASES_DIRECTORY))),
+                Long.getLong("javadet.caseCacheMegabytes", DEFAULT_CASE_CACHE_MEGABYTES) << 20));
+
+        caseLoaded.thenCombine(templatesLoaded.exceptionally(ex -> TemplateSet.DEFAULT),
+                (snapshot, templates) -> newGameLogic(snapshot, templates, null))
+                .whenComplete((logic, ex) -> SwingUtilities.invokeLater(() -> caseReady(logic, ex)));
+    }
+
+    /**
+     * Builds the game logic for a case with the configured difficulty and match threshold.
+     *
+     * @param difficulty The case's own difficulty, or null to use the configured one.
+     */
+    private GameLogic newGameLogic(CaseSnapshot snapshot, TemplateSet templates, CaseDifficulty difficulty) {
+        GameLogic logic = new GameLogic(snapshot, store);
+        String configured = System.getProperty(DIFFICULTY_PROPERTY);
+        if (configured != null) {
+            logic.setDifficulty(CaseDifficulty.valueOf(configured.toUpperCase(Locale.ROOT)));
+        } else if (difficulty != null) {
+            logic.setDifficulty(difficulty);
+        }
+        String threshold = System.getProperty(MATCH_THRESHOLD_PROPERTY);
+        if (threshold != null) {
+            logic.setMatchThreshold(Double.parseDouble(threshold));
+        }
+        logic.setTemplates(templates);
+        return logic;
+    }
+
+    /**
+     * Opens the configured store, falling back to memory if its snapshot cannot be read.
+     * By default suspect updates are written behind to SQLite so questioning never waits on it.
+     */
+    private static GameStore openStore() {
+        try {
+            return GameStore.open(System.getProperty("javadet.store", DEFAULT_STORE));
+        } catch (IOException ex) {
+            Metrics.recordError("store.open", ex);
+            return new InMemoryStore();
+        }
+    }
+
+    /**
+     * Leaves the loading state once the case is loaded, or shows why it could not be. Runs on the EDT.
+     */
+    private void caseReady(GameLogic logic, Throwable error) {
+        if (error != null) {
+            show(output.appendText("The case could not be loaded: " + error.getMessage()));
+            return;
+        }
+        gameLogic = logic;
+        output.setTemplates(logic.getTemplates());
+        show(output.appendText("Case ready. Press Start Case to begin.\n"));
+        setGameButtonsEnabled(true);
+        startup.mark("interactive");
+        startup.whenDone().thenRun(() -> System.out.println(startup.report()));
+    }
+
+    private void setGameButtonsEnabled(boolean enabled) {
+        startCaseButton.setEnabled(enabled);
+        viewCluesButton.setEnabled(enabled);
+        questionSuspectsButton.setEnabled(enabled);
+        makeAccusationButton.setEnabled(enabled);
+        switchCaseButton.setEnabled(enabled);
+    }
+
+    /**
+     * Returns the event log once it is open, or null if it could not be opened.
+     * May wait for it, so it is only called off the EDT.
+     */
+    private EventLog eventLog() {
+        return eventLogOpened.handle((log, ex) -> log).join();
+    }
+
+    /**
+     * Opens the plain-text investigation log and closes it on shutdown.
+     *
+     * @return The writer, or null if the file cannot be opened either.
+     */
+    private static InvestigationLogWriter openFallbackLog() {
+        try {
+            InvestigationLogWriter writer = new InvestigationLogWriter(LOG_FILE_PATH);
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close));
+            return writer;
+        } catch (IOException ex) {
+            Metrics.recordError("log.open", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Appends a plain-text investigation log entry; used only without an event log.
+     * Entries are queued to the fallback log's writer thread, or, if it could not be opened,
+     * appended to the file directly.
+     */
+    private void log(String logEntry) {
+        String entry = "[" + LocalDateTime.now() + "] " + logEntry;
+        InvestigationLogWriter writer = fallbackLogOpened.join();
+        if (writer != null) {
+            writer.append(entry);
+        } else {
+            FileManager.saveInvestigationLog(LOG_FILE_PATH, entry);
+        }
+    }
+
+    /**
+     * Scrolls so that newly appended output is visible, starting from its first row.
+     */
+    private void show(int firstRow) {
+        if (firstRow < output.getSize()) {
+            displayList.ensureIndexIsVisible(output.getSize() - 1);
+            displayList.ensureIndexIsVisible(firstRow);
+        }
     }
 
     /**
@@ -88,17 +283,31 @@ public class GameFrame extends JFrame implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         // Start Case: Display and load the narrative.
         if (e.getSource() == startCaseButton) {
-            displayArea.setText(gameLogic.getCaseStory());
+            show(output.appendText(gameLogic.getCaseStory()));
         }
-        // View Clues: Display all clues and log their discovery.
+        // View Clues: Display the unlocked clues and log their discovery.
         else if (e.getSource() == viewCluesButton) {
-            StringBuilder cluesText = new StringBuilder("Clues Discovered:\n\n");
-            for (Clue clue : gameLogic.getClues()) {
-                cluesText.append("- ").append(clue.getDetailedDescription()).append("\n");
-                String logEntry = "[" + LocalDateTime.now() + "] Clue discovered: " + clue.getDetailedDescription();
-                FileManager.saveInvestigationLog("src/investigation_log.txt", logEntry);
-            }
-            displayArea.setText(cluesText.toString());
+            java.util.List<Clue> clues = gameLogic.viewClues();
+            int firstRow = output.appendText("Clues Discovered:\n");
+            // The clue rows are a view over the clue list; they are formatted only when visible.
+            output.appendRows(clues);
+            int locked = gameLogic.getClues().size() - clues.size();
+            output.appendText(locked == 0 ? "" : locked + " more clue(s) still to uncover.\n");
+            show(firstRow);
+            // Logging writes to disk, so it runs in the background. Clues already logged are skipped.
+            TemplateSet templates = gameLogic.getTemplates();
+            long session = sessionId;
+            dispatcher.dispatch(viewCluesButton, () -> {
+                EventLog eventLog = eventLog();
+                for (Clue clue : clues) {
+                    if (eventLog != null) {
+                        eventLog.clueDiscovered(session, clue);
+                    } else {
+                        log("Clue discovered: " + clue.getDetailedDescription(templates));
+                    }
+                }
+                return null;
+            }, ignored -> { });
         }
         // Question Suspects: Let the user pick a suspect and choose an initial question.
         else if (e.getSource() == questionSuspectsButton) {
@@ -118,27 +327,11 @@ public class GameFrame extends JFrame implements ActionListener {
             );
 
             if (selectedSuspect != null) {
-                // Retrieve initial dialogue options from the suspect (using context "Start").
-                java.util.List<String> options = new java.util.ArrayList<>(
-                        gameLogic.getSuspects().stream()
-                                .filter(s -> s.getName().equals(selectedSuspect))
-                                .findFirst().get().getDialogueOptions("Start").keySet()
-                );
-
-                String selectedQuestion = (String) JOptionPane.showInputDialog(
-                        this,
-                        "Ask " + selectedSuspect + ":",
-                        "Select a Question",
-                        JOptionPane.QUESTION_MESSAGE,
-                        null,
-                        options.toArray(),
-                        options.get(0)
-                );
-
-                if (selectedQuestion != null) {
-                    String response = gameLogic.askQuestion(selectedSuspect, "Start", selectedQuestion);
-                    displayArea.setText("Suspect: " + selectedSuspect + "\nQ: " + selectedQuestion + "\nA: " + response);
-                }
+                Suspect suspect = gameLogic.getSuspects().stream()
+                        .filter(s -> s.getName().equals(selectedSuspect))
+                        .findFirst().get();
+                show(output.appendText("Suspect: " + selectedSuspect));
+                askNext(suspect, "Start");
             }
         }
         // Make Accusation: User enters a suspect's name to accuse, and the outcome is shown.
@@ -147,27 +340,146 @@ public class GameFrame extends JFrame implements ActionListener {
                     this, "Enter the name of the suspect you accuse:"
             );
             if (suspectAccused != null && !suspectAccused.trim().isEmpty()) {
-                String outcome = gameLogic.makeAccusation(suspectAccused);
-                displayArea.setText(outcome);
-                // Log the accusation with a timestamp.
-                String logEntry = "[" + LocalDateTime.now() + "] Accusation made on: " + suspectAccused + ". Outcome: " + outcome;
-                FileManager.saveInvestigationLog("src/investigation_log.txt", logEntry);
+                // The case in play now, even if another one is switched to before the task runs.
+                GameLogic logic = gameLogic;
+                long session = sessionId;
+                dispatcher.dispatch(makeAccusationButton, () -> {
+                    GameLogic.Accusation accusation = logic.accuse(suspectAccused);
+                    String outcome = accusation.getMessage();
+                    EventLog eventLog = eventLog();
+                    if (eventLog != null) {
+                        eventLog.accusationMade(session, suspectAccused, accusation.isCorrect());
+                    } else {
+                        log("Accusation made on: " + suspectAccused + ". Outcome: " + outcome);
+                    }
+                    return outcome;
+                }, outcome -> show(output.appendText(outcome + "\n")));
             }
         }
+        // Switch Case: Pick another case of the catalog; recently played and next cases are already loaded.
+        else if (e.getSource() == switchCaseButton) {
+            switchCase();
+        }
         // Exit: Close the application.
         else if (e.getSource() == exitButton) {
+            // The shutdown hooks close the event log and flush pending database writes.
             System.exit(0);
         }
     }
 
+    /**
+     * Lets the player pick a case of the catalog and switches to it. The case is taken from the
+     * cache, or loaded in the background; the previous case's event log session ends and a new
+     * one starts for it.
+     */
+    private void switchCase() {
+        CaseCache cases = casesScanned.handle((cache, ex) -> cache).getNow(null);
+        if (cases == null || cases.getCatalog().size() == 0) {
+            String message = casesScanned.isDone()
+                    ? "No case bundles found in " + System.getProperty("javadet.cases", CASES_DIRECTORY) + "."
+                    : "The case catalog is still being scanned.";
+            JOptionPane.showMessageDialog(this, message, "Switch Case", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        CaseCatalog.Entry[] entries = cases.getCatalog().getEntries().toArray(new CaseCatalog.Entry[0]);
+        CaseCatalog.Entry selected = (CaseCatalog.Entry) JOptionPane.showInputDialog(
+                this,
+                "Select a case (" + entries.length + " available):",
+                "Switch Case",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                entries,
+                entries[0]
+        );
+        if (selected == null) {
+            return;
+        }
+        TemplateSet templates = gameLogic.getTemplates();
+        dispatcher.dispatch(switchCaseButton, () -> {
+            GameLogic logic = newGameLogic(cases.get(selected.getId()), templates, selected.getDifficulty());
+            EventLog eventLog = eventLog();
+            if (eventLog != null) {
+                eventLog.endSession(sessionId);
+                sessionId = eventLog.startSession(selected.getId());
+            }
+            return logic;
+        }, logic -> {
+            gameLogic = logic;
+            show(output.appendText("Now investigating: " + selected.getTitle()
+                    + ". Press Start Case to read it.\n"));
+        });
+    }
+
+    /**
+     * Asks the player for a question in the given context, sends it to the suspect in the
+     * background and, once answered, continues with the follow-up context if there is one.
+     * The player can pick one of the context's questions or type their own, which the game
+     * matches to the suspect's closest question.
+     */
+    private void askNext(Suspect suspect, String context) {
+        if (!gameLogic.isContextUnlocked(suspect.getName(), context)) {
+            show(output.appendText(suspect.getName() + " has nothing more to say about that yet.\n"));
+            return;
+        }
+        java.util.List<String> options = new java.util.ArrayList<>(
+                suspect.getDialogueOptions(context).keySet()
+        );
+        if (options.isEmpty()) {
+            return;
+        }
+
+        JComboBox<String> questionBox = new JComboBox<>(options.toArray(new String[0]));
+        questionBox.setEditable(true);
+        int choice = JOptionPane.showConfirmDialog(
+                this,
+                new Object[] {"Ask " + suspect.getName() + " (pick or type a question):", questionBox},
+                "Select a Question",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.QUESTION_MESSAGE
+        );
+        Object typed = questionBox.getEditor().getItem();
+        String selectedQuestion = typed == null ? "" : typed.toString().trim();
+
+        if (choice == JOptionPane.OK_OPTION && !selectedQuestion.isEmpty()) {
+            // The suspect belongs to the case in play now, even if another one is switched to meanwhile.
+            GameLogic logic = gameLogic;
+            long session = sessionId;
+            dispatcher.dispatch(questionSuspectsButton,
+                    () -> {
+                        EventLog eventLog = eventLog();
+                        if (eventLog != null) {
+                            eventLog.questionAsked(session, suspect.getName(), context, selectedQuestion);
+                        }
+                        QuestionMatcher.Match match = logic.matchQuestion(suspect.getName(), context, selectedQuestion);
+                        String response = logic.answer(suspect.getName(), selectedQuestion, match);
+                        // The response, then the follow-up context (null if the dialogue ends).
+                        return new String[] {response, match == null ? null : match.getNextContext()};
+                    },
+                    answer -> {
+                        show(output.appendText(logic.getTemplates().formatAnswer(selectedQuestion, answer[0])));
+                        if (answer[1] != null && gameLogic == logic) {
+                            askNext(suspect, answer[1]);
+                        }
+                    });
+        }
+    }
+
     /**
      * Entry point for the game.
      */
     public static void main(String[] args) {
         // Safely start the GUI on the Event Dispatch Thread.
+        // Report any Event Dispatch Thread stall longer than 200 ms, with the blocking stack.
+        new EdtWatchdog(Long.getLong("javadet.edtStallMillis", 200)).start();
+        // Print the metrics table periodically when -Djavadet.metricsReportSeconds is set.
+        long reportSeconds = Long.getLong("javadet.metricsReportSeconds", 0);
+        if (reportSeconds > 0) {
+            Metrics.startReporter(reportSeconds, System.out);
+        }
         SwingUtilities.invokeLater(() -> {
             GameFrame frame = new GameFrame();
             frame.setVisible(true);
+            frame.startup.mark("window");
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package gui;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import model.Clue;
+import model.TemplateSet;
+
+/**
+ * The list model behind the game's output view.
+ *
+ * Output is kept as a sequence of appended segments. A segment is either a few lines of text or
+ * a view over an existing list such as the case's clues, which is never copied. Rows are
+ * formatted only when the list asks for them, and a JList only asks for the visible rows, so
+ * the cost of showing tens of thousands of clues does not depend on their number. Each clue
+ * renders its description once; a row only adds the list prefix.
+ */
+public class OutputListModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<List<?>> segments = new ArrayList<>();
+    // Row index at which each segment starts.
+    private int[] segmentStart = new int[16];
+    private int size;
+    private TemplateSet templates = TemplateSet.DEFAULT;
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        // Find the last segment starting at or before the row.
+        int segment = Arrays.binarySearch(segmentStart, 0, segments.size(), index);
+        if (segment < 0) {
+            segment = -segment - 2;
+        } else {
+            // Empty segments share a start index with the next one; skip to the last of them.
+            while (segment + 1 < segments.size() && segmentStart[segment + 1] == index) {
+                segment++;
+            }
+        }
+        Object row = segments.get(segment).get(index - segmentStart[segment]);
+        if (row instanceof Clue) {
+            return templates.formatClueRow((Clue) row);
+        }
+        return String.valueOf(row);
+    }
+
+    /**
+     * Sets the templates clue rows are rendered with.
+     */
+    public void setTemplates(TemplateSet templates) {
+        this.templates = templates;
+        if (size > 0) {
+            fireContentsChanged(this, 0, size - 1);
+        }
+    }
+
+    /**
+     * Appends text, one row per line.
+     *
+     * @return The index of the first appended row.
+     */
+    public int appendText(String text) {
+        return appendRows(Arrays.asList(text.split("\n", -1)));
+    }
+
+    /**
+     * Appends a view over a list of rows without copying it.
+     * Clues are shown with their detailed description; anything else with toString().
+     * The list must not change afterwards.
+     *
+     * @return The index of the first appended row.
+     */
+    public int appendRows(List<?> rows) {
+        int first = size;
+        if (segments.size() == segmentStart.length) {
+            segmentStart = Arrays.copyOf(segmentStart, segmentStart.length * 2);
+        }
+        segmentStart[segments.size()] = first;
+        segments.add(Collections.unmodifiableList(rows));
+        size += rows.size();
+        if (size > first) {
+            fireIntervalAdded(this, first, size - 1);
+        }
+        return first;
+    }
+
+    /**
+     * Removes all output.
+     */
+    public void clear() {
+        int oldSize = size;
+        segments.clear();
+        size = 0;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+}
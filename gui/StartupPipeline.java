@@ -0,0 +1,111 @@
+package gui;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import metrics.Metrics;
+import metrics.Timer;
+
+/**
+ * Runs the game's startup phases in parallel, so the window can appear before anything is loaded.
+ *
+ * Each phase runs on its own background thread as soon as it is staged and hands back a future;
+ * whoever needs a phase's result joins it then, and no earlier. Phases are timed in the
+ * {@link Metrics} registry as "startup.&lt;phase&gt;". Milestones such as the window appearing or
+ * the game accepting input are measured from JVM start, as the player experiences them, and
+ * recorded as "startup.&lt;milestone&gt;".
+ */
+public class StartupPipeline {
+    private final ExecutorService executor;
+    private final List<CompletableFuture<?>> stages = new ArrayList<>();
+    // Phase or milestone -> milliseconds, in the order they finished.
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private final Map<String, Long> milestoneMillis = new LinkedHashMap<>();
+
+    public StartupPipeline() {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "startup-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts a phase in the background.
+     *
+     * @param name The phase's name, e.g. "store".
+     * @param work The phase; an exception or error completes the future exceptionally and is reported.
+     * @return The phase's result, to be joined where it is first needed.
+     */
+    public synchronized <T> CompletableFuture<T> stage(String name, Callable<T> work) {
+        Timer timer = Metrics.timer("startup." + name);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                T result = work.call();
+                finished(phaseMillis, name, System.nanoTime() - start, timer);
+                future.complete(result);
+            } catch (Throwable e) {
+                // Errors too, such as a missing driver class: a pending phase would keep the window loading.
+                // The future completes before anything else can fail.
+                future.completeExceptionally(e);
+                Metrics.recordError(timer, e);
+            }
+        });
+        stages.add(future);
+        return future;
+    }
+
+    /**
+     * Records that a milestone was reached now, e.g. "window" or "interactive".
+     */
+    public void mark(String milestone) {
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        finished(milestoneMillis, milestone, TimeUnit.MILLISECONDS.toNanos(uptimeMillis),
+                Metrics.timer("startup." + milestone));
+    }
+
+    private synchronized void finished(Map<String, Long> into, String name, long nanos, Timer timer) {
+        timer.record(nanos);
+        into.put(name, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * @return Completes once every phase staged so far has finished, successfully or not.
+     */
+    public synchronized CompletableFuture<Void> whenDone() {
+        CompletableFuture<?>[] all = stages.stream()
+                .map(stage -> stage.handle((result, error) -> null))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(all).thenRun(executor::shutdown);
+    }
+
+    /**
+     * @return One line with each milestone since JVM start and each phase's own time, e.g.
+     * "Startup: window 310 ms, interactive 420 ms (case 35 ms, templates 4 ms, store 900 ms)".
+     */
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder("Startup:");
+        String separator = " ";
+        for (Map.Entry<String, Long> milestone : milestoneMillis.entrySet()) {
+            sb.append(separator).append(milestone.getKey()).append(' ').append(milestone.getValue()).append(" ms");
+            separator = ", ";
+        }
+        separator = " (";
+        for (Map.Entry<String, Long> phase : phaseMillis.entrySet()) {
+            sb.append(separator).append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
+            separator = ", ";
+        }
+        return phaseMillis.isEmpty() ? sb.toString() : sb.append(')').toString();
+    }
+}
@@ -0,0 +1,162 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The application-wide metrics registry.
+ *
+ * Classes keep their timers in static final fields and wrap each operation as
+ * <pre>
+ *     long start = Metrics.start();
+ *     ...
+ *     LOAD_CASE.stop(start);
+ * </pre>
+ * Every timer and counter is also registered as a JMX MBean under "javadetective:*", and
+ * {@link #startReporter(long, PrintStream)} prints all of them periodically.
+ *
+ * Metrics are enabled unless the JVM is started with -Djavadet.metrics=false. The flag is a
+ * static final constant, so when it is off the JIT removes the recording code entirely.
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("javadet.metrics", "true"));
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    /**
+     * @return The start time to pass to {@link Timer#stop(long)}, or 0 when metrics are disabled.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Returns the timer with the given name, creating and registering it on first use.
+     * Its error counter is named "&lt;name&gt;.errors".
+     */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, n -> {
+            Timer timer = new Timer(n, counter(n + ".errors"));
+            register("Timer", n, timer);
+            return timer;
+        });
+    }
+
+    /**
+     * Returns the counter with the given name, creating and registering it on first use.
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> {
+            Counter counter = new Counter(n);
+            register("Counter", n, counter);
+            return counter;
+        });
+    }
+
+    /**
+     * Counts a failure of an operation and reports it on one line of System.err.
+     * The report is printed even when metrics are disabled.
+     *
+     * @param timer The timer of the failed operation.
+     * @param error What went wrong.
+     */
+    public static void recordError(Timer timer, Throwable error) {
+        timer.recordError(error);
+        System.err.println("[javadet] " + timer.getName() + " failed: " + error);
+    }
+
+    /**
+     * Counts a failure of an operation that has no timer and reports it on System.err.
+     */
+    public static void recordError(String operation, Throwable error) {
+        counter(operation + ".errors").recordError(error);
+        System.err.println("[javadet] " + operation + " failed: " + error);
+    }
+
+    private static void register(String type, String name, Object bean) {
+        if (!ENABLED) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("javadetective:type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("[javadet] could not register MBean " + name + ": " + e);
+        }
+    }
+
+    /**
+     * Writes every timer and counter as a text table.
+     */
+    public static void dump(Appendable out) throws IOException {
+        out.append(String.format("%-40s %10s %7s %10s %10s %10s %10s %10s%n",
+                "timer", "count", "errors", "mean(us)", "p50(us)", "p99(us)", "p999(us)", "max(us)"));
+        for (Timer timer : new TreeMap<>(TIMERS).values()) {
+            if (timer.getCount() == 0 && timer.getErrorCount() == 0) {
+                continue;
+            }
+            out.append(String.format("%-40s %10d %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    timer.getName(), timer.getCount(), timer.getErrorCount(), timer.getMeanMicros(),
+                    timer.getP50Micros(), timer.getP99Micros(), timer.getP999Micros(), timer.getMaxMicros()));
+        }
+        for (Counter counter : new TreeMap<>(COUNTERS).values()) {
+            // Error counters of timers are already shown in the timer table.
+            if (counter.getCount() == 0 || TIMERS.containsKey(counter.getName().replaceFirst("\\.errors$", ""))) {
+                continue;
+            }
+            out.append(String.format("%-40s %10d%s%n", counter.getName(), counter.getCount(),
+                    counter.getLastError() == null ? "" : "  last: " + counter.getLastError()));
+        }
+    }
+
+    /**
+     * Prints all metrics to the stream at a fixed period. Does nothing when metrics are disabled.
+     */
+    public static synchronized void startReporter(long periodSeconds, PrintStream out) {
+        if (!ENABLED || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            try {
+                StringBuilder sb = new StringBuilder();
+                dump(sb);
+                out.print(sb);
+            } catch (IOException e) {
+                // StringBuilder does not throw.
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic reporter.
+     */
+    public static synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdown();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package metrics;
+
+/**
+ * JMX view of a {@link Timer}. Latencies are in microseconds.
+ */
+public interface TimerMXBean {
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -1,13 +1,24 @@
 package model;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Represents a clue in the mystery game.
  * Each clue has a description, an optional hint, and an optional link to a suspect.
+ * A linked clue may also establish evidence (see {@link EvidenceType}) against that suspect.
+ * Clues are immutable so they can be shared between game sessions.
+ * Their detailed description is rendered once per {@link TemplateSet} and then cached.
  */
 public class Clue {
-    private String description;
-    private String hint;
-    private String relatedSuspect;
+    private final String description;
+    private final String hint;
+    private final String relatedSuspect;
+    // Bit mask of the EvidenceType kinds this clue establishes.
+    private final int evidence;
+    // Detailed descriptions by the set they were rendered with. Clues are shared by sessions that
+    // may use different sets, so one set's text never replaces another's.
+    private final Map<TemplateSet, String> rendered = new ConcurrentHashMap<>(2);
 
     // Basic constructor (only description)
     public Clue(String description) {
@@ -16,9 +27,15 @@ public class Clue {
 
     // Full constructor with description, hint, and related suspect.
     public Clue(String description, String hint, String relatedSuspect) {
+        this(description, hint, relatedSuspect, 0);
+    }
+
+    // Full constructor plus the evidence mask established against the related suspect.
+    public Clue(String description, String hint, String relatedSuspect, int evidence) {
         this.description = description;
         this.hint = hint;
         this.relatedSuspect = relatedSuspect;
+        this.evidence = evidence;
     }
 
     public String getDescription() {
@@ -33,18 +50,35 @@ public class Clue {
         return relatedSuspect;
     }
 
+    /**
+     * @return The evidence established against the related suspect, as an {@link EvidenceType} mask.
+     */
+    public int getEvidenceMask() {
+        return evidence;
+    }
+
+    public boolean hasEvidence(EvidenceType type) {
+        return (evidence & type.bit()) != 0;
+    }
+
     /**
      * Returns a formatted string including extra clue details.
      */
     public String getDetailedDescription() {
-        StringBuilder sb = new StringBuilder(description);
-        if (!hint.isEmpty()) {
-            sb.append(" [Hint: ").append(hint).append("]");
-        }
-        if (!relatedSuspect.isEmpty()) {
-            sb.append(" [Related Suspect: ").append(relatedSuspect).append("]");
+        return getDetailedDescription(TemplateSet.DEFAULT);
+    }
+
+    /**
+     * Returns the detailed description rendered with a template set, from the cache after the first call.
+     */
+    public String getDetailedDescription(TemplateSet templates) {
+        String text = rendered.get(templates);
+        if (text == null) {
+            // Racing renders produce equal strings, so either may be kept.
+            text = templates.renderClue(this);
+            rendered.putIfAbsent(templates, text);
         }
-        return sb.toString();
+        return text;
     }
 
     @Override
@@ -0,0 +1,180 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled, immutable dialogue tree.
+ *
+ * Contexts and questions are numbered when the graph is built. Questions of all contexts sit in
+ * flat arrays: context {@code c} owns the slots {@code contextStart[c]} to
+ * {@code contextStart[c + 1] - 1}, and a slot's index is the question id. Lookups by id are
+ * plain array reads and never allocate.
+ *
+ * A question leads to a follow-up context when a context with the same name as the question
+ * exists. For example, asking "Where were you last seen?" in "Start" moves the interrogation
+ * to the context named "Where were you last seen?", if the tree defines one.
+ */
+public final class DialogueGraph {
+    /** Returned by the id lookups when nothing matches. */
+    public static final int NONE = -1;
+    public static final String START_CONTEXT = "Start";
+
+    private final String[] contextNames;
+    private final int[] contextStart;
+    private final String[] questions;
+    private final String[] responses;
+    private final int[] nextContext;
+    private final Map<String, Integer> contextIds;
+    // Per context: question text -> question id.
+    private final List<Map<String, Integer>> questionIds;
+    // Per context: the read-only question -> response view handed to callers.
+    private final List<Map<String, String>> options;
+
+    private DialogueGraph(Map<String, Map<String, String>> tree) {
+        int contextCount = tree.size();
+        int slotCount = 0;
+        for (Map<String, String> branch : tree.values()) {
+            slotCount += branch.size();
+        }
+        contextNames = new String[contextCount];
+        contextStart = new int[contextCount + 1];
+        questions = new String[slotCount];
+        responses = new String[slotCount];
+        nextContext = new int[slotCount];
+        contextIds = new HashMap<>();
+        questionIds = new ArrayList<>(contextCount);
+        options = new ArrayList<>(contextCount);
+
+        int c = 0;
+        for (String context : tree.keySet()) {
+            contextNames[c] = context;
+            contextIds.put(context, c);
+            c++;
+        }
+        int slot = 0;
+        c = 0;
+        for (Map<String, String> branch : tree.values()) {
+            contextStart[c] = slot;
+            Map<String, Integer> ids = new HashMap<>();
+            for (Map.Entry<String, String> entry : branch.entrySet()) {
+                questions[slot] = entry.getKey();
+                responses[slot] = entry.getValue();
+                nextContext[slot] = contextIds.getOrDefault(entry.getKey(), NONE);
+                ids.put(entry.getKey(), slot);
+                slot++;
+            }
+            questionIds.add(ids);
+            options.add(Collections.unmodifiableMap(new LinkedHashMap<>(branch)));
+            c++;
+        }
+        contextStart[contextCount] = slot;
+    }
+
+    /**
+     * Compiles a dialogue tree mapping each context to its question -> response map.
+     */
+    public static DialogueGraph compile(Map<String, Map<String, String>> tree) {
+        return new DialogueGraph(tree);
+    }
+
+    public int getContextCount() {
+        return contextNames.length;
+    }
+
+    public int getQuestionCount() {
+        return questions.length;
+    }
+
+    /**
+     * @return The id of the named context, or {@link #NONE}.
+     */
+    public int contextId(String context) {
+        Integer id = contextIds.get(context);
+        return id == null ? NONE : id;
+    }
+
+    /**
+     * @return The id of a question within a context, or {@link #NONE}.
+     */
+    public int questionId(int context, String question) {
+        if (context < 0 || context >= contextNames.length) {
+            return NONE;
+        }
+        Integer id = questionIds.get(context).get(question);
+        return id == null ? NONE : id;
+    }
+
+    public String contextName(int context) {
+        return contextNames[context];
+    }
+
+    /**
+     * @return The id of the first question of a context; question ids of a context are consecutive.
+     */
+    public int firstQuestion(int context) {
+        return contextStart[context];
+    }
+
+    /**
+     * @return One past the id of the last question of a context.
+     */
+    public int endQuestion(int context) {
+        return contextStart[context + 1];
+    }
+
+    /**
+     * @return The context a question belongs to.
+     */
+    public int contextOf(int question) {
+        // contextStart is ascending; empty contexts share their start with the next one.
+        int low = 0;
+        int high = contextNames.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (contextStart[mid] <= question) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public String question(int question) {
+        return questions[question];
+    }
+
+    public String response(int question) {
+        return responses[question];
+    }
+
+    /**
+     * @return The context a question leads to, or {@link #NONE} if it has no follow-up.
+     */
+    public int nextContext(int question) {
+        return nextContext[question];
+    }
+
+    /**
+     * @return The names of all contexts, in definition order.
+     */
+    public List<String> contextNames() {
+        return Collections.unmodifiableList(Arrays.asList(contextNames));
+    }
+
+    /**
+     * @return The question -> response map of a context, or an empty map if the id is unknown.
+     */
+    public Map<String, String> options(int context) {
+        if (context < 0 || context >= contextNames.length) {
+            return Collections.emptyMap();
+        }
+        return options.get(context);
+    }
+}
@@ -0,0 +1,62 @@
+package model;
+
+import java.util.Locale;
+
+/**
+ * The kinds of evidence a clue can establish against its related suspect.
+ * A set of kinds is stored as a bit mask, one bit per kind.
+ */
+public enum EvidenceType {
+    MOTIVE,
+    MEANS,
+    OPPORTUNITY;
+
+    /**
+     * The mask with every kind set: a suspect with this much evidence could have done it.
+     */
+    public static final int ALL = (1 << values().length) - 1;
+
+    /**
+     * @return This kind's bit in an evidence mask.
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Parses a list of kinds separated by commas or spaces, e.g. "motive, means".
+     *
+     * @param text The list; case is ignored.
+     * @return The evidence mask, or -1 if a word is not a kind of evidence.
+     */
+    public static int parseMask(String text) {
+        int mask = 0;
+        for (String word : text.split("[,\\s]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            try {
+                mask |= valueOf(word.toUpperCase(Locale.ROOT)).bit();
+            } catch (IllegalArgumentException e) {
+                return -1;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Formats an evidence mask as a list such as "motive, opportunity".
+     */
+    public static String describe(int mask) {
+        StringBuilder sb = new StringBuilder();
+        for (EvidenceType type : values()) {
+            if ((mask & type.bit()) != 0) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(type.name().toLowerCase(Locale.ROOT));
+            }
+        }
+        return sb.length() == 0 ? "none" : sb.toString();
+    }
+}
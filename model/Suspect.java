@@ -1,46 +1,79 @@
 package model;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents a suspect in the mystery game.
  * Each suspect has a name and a dialogue tree to support branching interrogation.
+ * The tree is compiled into a {@link DialogueGraph}, so lookups do not allocate.
+ * Suspects are immutable so they can be shared between game sessions.
  */
 public class Suspect {
-    private String name;
-    // The dialogueTree maps a context branch (e.g., "Start") to a map of question->response.
-    private Map<String, Map<String, String>> dialogueTree;
+    private static final String DEFAULT_RESPONSE = "I have nothing further to add.";
+
+    private final String name;
+    // The compiled dialogue tree: contexts (e.g., "Start") with their questions and responses.
+    private final DialogueGraph dialogue;
+    private final Set<String> contexts;
 
     public Suspect(String name, Map<String, Map<String, String>> dialogueTree) {
         this.name = name;
-        this.dialogueTree = dialogueTree;
+        this.dialogue = DialogueGraph.compile(dialogueTree);
+        this.contexts = Collections.unmodifiableSet(new LinkedHashSet<>(dialogue.contextNames()));
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * Returns the compiled dialogue, for callers that look up by id.
+     */
+    public DialogueGraph getDialogueGraph() {
+        return dialogue;
+    }
+
+    /**
+     * Returns the names of all dialogue contexts, in definition order.
+     */
+    public Set<String> getContexts() {
+        return contexts;
+    }
+
     /**
      * Returns the dialogue options for the given context (e.g. "Start").
      */
     public Map<String, String> getDialogueOptions(String context) {
         if (context == null || context.isEmpty()) {
-            context = "Start";
+            context = DialogueGraph.START_CONTEXT;
         }
-        return dialogueTree.getOrDefault(context, new HashMap<>());
+        return dialogue.options(dialogue.contextId(context));
     }
 
     /**
      * Provides the response associated with a given question in the current context.
      */
     public String getResponse(String context, String question) {
-        Map<String, String> branch = dialogueTree.getOrDefault(context, new HashMap<>());
-        return branch.getOrDefault(question, "I have nothing further to add.");
+        int id = dialogue.questionId(dialogue.contextId(context), question);
+        return id == DialogueGraph.NONE ? DEFAULT_RESPONSE : dialogue.response(id);
+    }
+
+    /**
+     * Returns the follow-up context a question leads to, or null if the dialogue ends there.
+     */
+    public String getNextContext(String context, String question) {
+        int id = dialogue.questionId(dialogue.contextId(context), question);
+        if (id == DialogueGraph.NONE || dialogue.nextContext(id) == DialogueGraph.NONE) {
+            return null;
+        }
+        return dialogue.contextName(dialogue.nextContext(id));
     }
 
     @Override
     public String toString() {
         return name;
     }
-}
\ No newline at end of file
+}
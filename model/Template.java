@@ -0,0 +1,115 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A text template compiled once into literal runs and parameter slots.
+ *
+ * Parameters are written as {name} and "{{" stands for a literal brace. Rendering appends the
+ * runs and the values in order, without parsing or intermediate strings.
+ */
+public final class Template {
+    // literals[i] comes before the i-th parameter; the last literal ends the text.
+    private final String[] literals;
+    // Index into the render arguments of each parameter slot.
+    private final int[] slots;
+    private final int literalLength;
+
+    private Template(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param source     The template text.
+     * @param parameters The parameter names, in the order their values are passed to render.
+     * @return The compiled template.
+     * @throws IllegalArgumentException If the text uses an unknown parameter or has an unclosed brace.
+     */
+    public static Template compile(String source, String... parameters) {
+        List<String> names = Arrays.asList(parameters);
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c != '{') {
+                literal.append(c);
+                i++;
+            } else if (source.startsWith("{{", i)) {
+                literal.append('{');
+                i += 2;
+            } else {
+                int end = source.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed parameter in template: " + source);
+                }
+                int slot = names.indexOf(source.substring(i + 1, end));
+                if (slot < 0) {
+                    throw new IllegalArgumentException("Unknown parameter " + source.substring(i, end + 1)
+                            + " in template: " + source);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(slot);
+                i = end + 1;
+            }
+        }
+        literals.add(literal.toString());
+        return new Template(literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Appends the template with its parameter values.
+     *
+     * @param out    Where the text goes.
+     * @param values The parameter values, in the order the parameters were named when compiling.
+     */
+    public void render(Appendable out, CharSequence... values) throws IOException {
+        if (!literals[0].isEmpty()) {
+            out.append(literals[0]);
+        }
+        for (int i = 0; i < slots.length; i++) {
+            out.append(values[slots[i]]);
+            if (!literals[i + 1].isEmpty()) {
+                out.append(literals[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Appends the template to a StringBuilder, which cannot fail.
+     */
+    public void render(StringBuilder out, CharSequence... values) {
+        try {
+            render((Appendable) out, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The template with its parameter values, as a string.
+     */
+    public String format(CharSequence... values) {
+        int length = literalLength;
+        for (int slot : slots) {
+            length += values[slot].length();
+        }
+        StringBuilder sb = new StringBuilder(length);
+        render(sb, values);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,178 @@
+package model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The compiled templates the game renders its text with: clues, case information and answers.
+ *
+ * A set is compiled once, when it is created, so rendering never parses a template. The default
+ * set holds the English text; a locale's set comes from a templates_&lt;locale&gt;.properties file
+ * and falls back to the default for any key the file leaves out. Keys and their parameters:
+ * <ul>
+ *   <li>clue {description}, clue.hint {hint}, clue.suspect {suspect}: a clue, with the optional
+ *       parts appended only when the clue has them</li>
+ *   <li>clue.evidence {evidence}: the evidence a clue establishes, appended to it only when the
+ *       clue is explained, never in the text the player sees while investigating</li>
+ *   <li>clue.row {clue}: a clue in the list of discovered clues</li>
+ *   <li>case.header {story}, case.suspect {name}, case.footer: the case information</li>
+ *   <li>answer {question} {answer}: a question and the suspect's reply</li>
+ * </ul>
+ * Properties files trim leading spaces, so a value that starts with one must escape it as "\ ".
+ */
+public final class TemplateSet {
+    private static final Properties DEFAULT_TEXT = new Properties();
+    static {
+        DEFAULT_TEXT.setProperty("clue", "{description}");
+        DEFAULT_TEXT.setProperty("clue.hint", " [Hint: {hint}]");
+        DEFAULT_TEXT.setProperty("clue.suspect", " [Related Suspect: {suspect}]");
+        DEFAULT_TEXT.setProperty("clue.evidence", " [Evidence: {evidence}]");
+        DEFAULT_TEXT.setProperty("clue.row", "- {clue}");
+        DEFAULT_TEXT.setProperty("case.header", "{story}\n\n---------- Case Information ----------\nSuspects:\n");
+        DEFAULT_TEXT.setProperty("case.suspect", "- {name}\n");
+        DEFAULT_TEXT.setProperty("case.footer",
+                "\nFollow the clues, question the suspects and make your accusation wisely.\n");
+        DEFAULT_TEXT.setProperty("answer", "Q: {question}\nA: {answer}");
+    }
+
+    /**
+     * The English templates.
+     */
+    public static final TemplateSet DEFAULT = new TemplateSet(Locale.ROOT, new Properties());
+
+    private final Locale locale;
+    private final Template clue;
+    private final Template clueHint;
+    private final Template clueSuspect;
+    private final Template clueEvidence;
+    private final Template clueRow;
+    private final Template caseHeader;
+    private final Template caseSuspect;
+    private final Template caseFooter;
+    private final Template answer;
+
+    private TemplateSet(Locale locale, Properties text) {
+        this.locale = locale;
+        this.clue = compile(text, "clue", "description");
+        this.clueHint = compile(text, "clue.hint", "hint");
+        this.clueSuspect = compile(text, "clue.suspect", "suspect");
+        this.clueEvidence = compile(text, "clue.evidence", "evidence");
+        this.clueRow = compile(text, "clue.row", "clue");
+        this.caseHeader = compile(text, "case.header", "story");
+        this.caseSuspect = compile(text, "case.suspect", "name");
+        this.caseFooter = compile(text, "case.footer");
+        this.answer = compile(text, "answer", "question", "answer");
+    }
+
+    private static Template compile(Properties text, String key, String... parameters) {
+        return Template.compile(text.getProperty(key, DEFAULT_TEXT.getProperty(key)), parameters);
+    }
+
+    /**
+     * Compiles a set from template text, using the default for every key the text leaves out.
+     *
+     * @throws IllegalArgumentException If a template is malformed.
+     */
+    public static TemplateSet of(Locale locale, Properties text) {
+        return new TemplateSet(locale, text);
+    }
+
+    /**
+     * Loads the set for a locale from a directory: templates_&lt;language&gt;_&lt;country&gt;.properties
+     * if it exists, else templates_&lt;language&gt;.properties, else the default set.
+     *
+     * @param directory The directory holding the template files.
+     * @param locale    The locale to load.
+     * @return The compiled set.
+     * @throws IOException If a file exists but cannot be read or holds a malformed template.
+     */
+    public static TemplateSet load(Path directory, Locale locale) throws IOException {
+        Path file = directory.resolve("templates_" + locale + ".properties");
+        if (!Files.exists(file)) {
+            file = directory.resolve("templates_" + locale.getLanguage() + ".properties");
+        }
+        if (locale.getLanguage().isEmpty() || !Files.exists(file)) {
+            return DEFAULT;
+        }
+        Properties text = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            text.load(reader);
+        }
+        try {
+            return new TemplateSet(locale, text);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Renders a clue's detailed description. Clues cache the result, see {@link Clue#getDetailedDescription(TemplateSet)}.
+     */
+    String renderClue(Clue c) {
+        StringBuilder sb = new StringBuilder(c.getDescription().length() + 64);
+        clue.render(sb, c.getDescription());
+        if (!c.getHint().isEmpty()) {
+            clueHint.render(sb, c.getHint());
+        }
+        if (!c.getRelatedSuspect().isEmpty()) {
+            clueSuspect.render(sb, c.getRelatedSuspect());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return A clue's detailed description followed by the evidence it establishes, which gives
+     * the solution away; for explanations and debugging, not for clues shown during play.
+     */
+    public String explainClue(Clue c) {
+        String description = c.getDetailedDescription(this);
+        if (c.getEvidenceMask() == 0) {
+            return description;
+        }
+        StringBuilder sb = new StringBuilder(description);
+        clueEvidence.render(sb, EvidenceType.describe(c.getEvidenceMask()));
+        return sb.toString();
+    }
+
+    /**
+     * @return A clue as a row of the discovered-clues list.
+     */
+    public String formatClueRow(Clue c) {
+        return clueRow.format(c.getDetailedDescription(this));
+    }
+
+    /**
+     * Appends the case information: the story, the suspects and a closing line.
+     */
+    public void appendCaseInformation(String story, Collection<Suspect> suspects, Appendable out) throws IOException {
+        caseHeader.render(out, story);
+        for (Suspect suspect : suspects) {
+            caseSuspect.render(out, suspect.getName());
+        }
+        caseFooter.render(out);
+    }
+
+    /**
+     * Appends a question and the suspect's answer.
+     */
+    public void appendAnswer(String question, String response, Appendable out) throws IOException {
+        answer.render(out, question, response);
+    }
+
+    /**
+     * @return A question and the suspect's answer, as a string.
+     */
+    public String formatAnswer(String question, String response) {
+        return answer.format(question, response);
+    }
+}